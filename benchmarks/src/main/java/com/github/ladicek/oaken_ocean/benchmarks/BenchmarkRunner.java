@@ -0,0 +1,41 @@
+package com.github.ladicek.oaken_ocean.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with 1, 2, 4, ... threads, up to the number of available processors,
+ * always with the GC profiler enabled, so that both the overhead and the allocation rate are reported.
+ * Arguments, if present, are regular expressions selecting the benchmarks to run; by default, all benchmarks run.
+ * <p>
+ * Usage: {@code mvn -pl benchmarks -am package && java -jar benchmarks/target/benchmarks.jar [regexp...]}
+ * <p>
+ * To pass arbitrary JMH options instead, use {@code java -cp benchmarks/target/benchmarks.jar org.openjdk.jmh.Main}.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads = nextThreads(threads, maxThreads)) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (args.length == 0) {
+                options.include("com\\.github\\.ladicek\\.oaken_ocean\\..*");
+            }
+            for (String include : args) {
+                options.include(include);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static int nextThreads(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1; // terminates the loop
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.ladicek.oaken_ocean.benchmarks;
+
+import com.github.ladicek.oaken_ocean.core.circuit.breaker.CircuitBreaker;
+import com.github.ladicek.oaken_ocean.core.fallback.Fallback;
+import com.github.ladicek.oaken_ocean.core.retry.Delay;
+import com.github.ladicek.oaken_ocean.core.retry.Retry;
+import com.github.ladicek.oaken_ocean.core.stopwatch.SystemStopwatch;
+import com.github.ladicek.oaken_ocean.core.timeout.ScheduledExecutorTimeoutWatcher;
+import com.github.ladicek.oaken_ocean.core.timeout.Timeout;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-call overhead of each strategy, and of a common stack of strategies, compared to calling
+ * the guarded action directly. The guarded action always succeeds, so this measures the happy path.
+ * All threads share the same strategy instances, so running with multiple threads also measures contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrategiesBenchmark {
+    private static final SetOfThrowables ALL_EXCEPTIONS = SetOfThrowables.create(Collections.singletonList(Exception.class));
+
+    // long enough to never fire during a benchmark iteration; watches are removed from the queue when cancelled
+    private static final long TIMEOUT_IN_MILLIS = 1000;
+
+    private ScheduledExecutorTimeoutWatcher timeoutWatcher;
+
+    private Callable<String> raw;
+    private Callable<String> fallback;
+    private Callable<String> retry;
+    private Callable<String> circuitBreaker;
+    private Callable<String> timeout;
+    private Callable<String> stack;
+
+    @Setup
+    public void setUp() {
+        timeoutWatcher = new ScheduledExecutorTimeoutWatcher();
+        SystemStopwatch stopwatch = new SystemStopwatch();
+        Delay noDelay = () -> {};
+
+        raw = () -> "foobar";
+        fallback = new Fallback<>(raw, "fallback", () -> "fallback");
+        retry = new Retry<>(raw, "retry", ALL_EXCEPTIONS, SetOfThrowables.EMPTY, 3, 0, noDelay, stopwatch);
+        circuitBreaker = new CircuitBreaker<>(raw, "circuit breaker", ALL_EXCEPTIONS, 5000, 20, 0.5, 1, stopwatch);
+        timeout = new Timeout<>(raw, "timeout", TIMEOUT_IN_MILLIS, timeoutWatcher);
+
+        stack = new Fallback<>(
+                new Retry<>(
+                        new CircuitBreaker<>(
+                                new Timeout<>(raw, "stack", TIMEOUT_IN_MILLIS, timeoutWatcher),
+                                "stack", ALL_EXCEPTIONS, 5000, 20, 0.5, 1, stopwatch),
+                        "stack", ALL_EXCEPTIONS, SetOfThrowables.EMPTY, 3, 0, noDelay, stopwatch),
+                "stack", () -> "fallback");
+    }
+
+    @TearDown
+    public void tearDown() {
+        timeoutWatcher.close();
+    }
+
+    @Benchmark
+    public String raw() throws Exception {
+        return raw.call();
+    }
+
+    @Benchmark
+    public String fallback() throws Exception {
+        return fallback.call();
+    }
+
+    @Benchmark
+    public String retry() throws Exception {
+        return retry.call();
+    }
+
+    @Benchmark
+    public String circuitBreaker() throws Exception {
+        return circuitBreaker.call();
+    }
+
+    @Benchmark
+    public String timeout() throws Exception {
+        return timeout.call();
+    }
+
+    @Benchmark
+    public String fallbackRetryCircuitBreakerTimeout() throws Exception {
+        return stack.call();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.SystemStopwatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rolling window implementations. This is in the same package as the implementations,
+ * because most of them are package-private. The window is shared by all threads, same as in a circuit breaker,
+ * and about 10 % of the recorded invocations are failures, which is never enough to reach the failure threshold.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RollingWindowBenchmark {
+    private static final int SIZE = 100;
+    private static final int FAILURE_THRESHOLD = 50;
+
+    @Param({"naive", "bitset", "lockFree", "striped", "timeBased"})
+    public String implementation;
+
+    private RollingWindow rollingWindow;
+
+    @Setup
+    public void setUp() {
+        switch (implementation) {
+            case "naive":
+                rollingWindow = new NaiveRollingWindow(SIZE, FAILURE_THRESHOLD);
+                break;
+            case "bitset":
+                rollingWindow = new BitsetRollingWindow(SIZE, FAILURE_THRESHOLD);
+                break;
+            case "lockFree":
+                rollingWindow = RollingWindow.Factory.DEFAULT.create(SIZE, FAILURE_THRESHOLD);
+                break;
+            case "striped":
+                rollingWindow = RollingWindow.Factory.STRIPED.create(SIZE, FAILURE_THRESHOLD);
+                break;
+            case "timeBased":
+                rollingWindow = RollingWindow.Factory.timeBased(10, 1000, new SystemStopwatch()).create(SIZE, FAILURE_THRESHOLD);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown rolling window implementation: " + implementation);
+        }
+    }
+
+    @Benchmark
+    public boolean record() {
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            return rollingWindow.recordFailure();
+        } else {
+            return rollingWindow.recordSuccess();
+        }
+    }
+}
@@ -28,6 +28,16 @@ final class BitsetRollingWindow implements RollingWindow {
         return failureThresholdReached();
     }
 
+    @Override
+    public synchronized double failureRatio() {
+        int invocations = Math.min(counter, size);
+        if (invocations == 0) {
+            return 0.0;
+        }
+
+        return (double) failures.cardinality() / invocations;
+    }
+
     private int nextIndex() {
         counter++;
 
@@ -0,0 +1,41 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+/**
+ * Result of {@link CircuitBreaker#tryCall()}: either a value returned by the guarded action, or a rejection,
+ * if the circuit breaker didn't let the invocation through.
+ */
+public final class CallResult<V> {
+    private static final CallResult<?> REJECTED = new CallResult<>(null, true);
+
+    private final V value;
+    private final boolean rejected;
+
+    static <V> CallResult<V> of(V value) {
+        return new CallResult<>(value, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> CallResult<V> rejected() {
+        return (CallResult<V>) REJECTED;
+    }
+
+    private CallResult(V value, boolean rejected) {
+        this.value = value;
+        this.rejected = rejected;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns the value returned by the guarded action. Throws {@link IllegalStateException}
+     * if the invocation was rejected.
+     */
+    public V value() {
+        if (rejected) {
+            throw new IllegalStateException("Invocation was rejected by the circuit breaker");
+        }
+        return value;
+    }
+}
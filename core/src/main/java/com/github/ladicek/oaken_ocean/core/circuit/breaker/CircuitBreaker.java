@@ -1,12 +1,16 @@
 package com.github.ladicek.oaken_ocean.core.circuit.breaker;
 
-import com.github.ladicek.oaken_ocean.core.stopwatch.RunningStopwatch;
-import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.deadline.Deadline;
 import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+import com.github.ladicek.oaken_ocean.core.util.ExceptionClassifier;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
 import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
@@ -16,121 +20,422 @@ public class CircuitBreaker<V> implements Callable<V> {
     private static final int STATE_OPEN = 1;
     private static final int STATE_HALF_OPEN = 2;
 
+    // returned from `invoke` instead of the action result when the invocation is rejected
+    private static final Object REJECTED_OPEN = new Object();
+    private static final Object REJECTED_HALF_OPEN = new Object();
+
     private final Callable<V> delegate;
     private final String description;
 
-    private final SetOfThrowables failOn;
+    private final ExceptionClassifier failOn;
     private final long delayInMillis;
+    private final OpenDelayBackoff openDelayBackoff;
     private final int rollingWindowSize;
     private final int failureThreshold;
     private final int successThreshold;
+    private final long slowCallDurationInNanos; // 0 if slow calls are not tracked
+    private final int slowCallThreshold;
+    private final int maxConcurrentTrials;
+    private final RejectionMode rejectionMode;
+    private final RollingWindow.Factory rollingWindowFactory;
+    private final CircuitStateStore stateStore;
     private final Stopwatch stopwatch;
 
-    // these state variables can only be mutated in the state transition methods (from*to*)
-    private int state = STATE_CLOSED;
-    private RollingWindow rollingWindow; // only consulted in CLOSED
-    private RunningStopwatch runningStopwatch; // only consulted in OPEN
-    private AtomicInteger consecutiveSuccesses; // only consulted in HALF_OPEN
+    // the state can only be replaced in the state transition methods (from*To*), always using a CAS
+    // whose expected value is the state object the caller has observed; this makes transitions atomic
+    // and also means that a caller with a stale view of the state can never perform a transition
+    private final AtomicReference<State> state;
+
+    private final String openMessage;
+    private final String halfOpenMessage;
+    private final CircuitBreakerOpenException sharedOpenException; // only if rejectionMode == SHARED
+    private final CircuitBreakerOpenException sharedHalfOpenException; // only if rejectionMode == SHARED
+
+    private final CircuitBreakerMetrics metrics = new CircuitBreakerMetrics(this);
+    private final Consumer<CircuitStateEvent> stateListener = this::adoptTransition;
 
     public CircuitBreaker(Callable<V> delegate, String description, SetOfThrowables failOn, long delayInMillis,
                           int requestVolumeThreshold, double failureRatio, int successThreshold, Stopwatch stopwatch) {
+        this(delegate, description, failOn, delayInMillis, requestVolumeThreshold, failureRatio, successThreshold,
+                CircuitBreakerConfig.DEFAULT, stopwatch);
+    }
+
+    /**
+     * The first parameters configure the circuit breaker the same way as in MicroProfile Fault Tolerance.
+     * The {@code config} enables optional behavior on top of that, such as prolonging the open delay, tripping
+     * on slow calls, limiting concurrent trial invocations, cheaper rejections, other kinds of rolling windows,
+     * or sharing the state with other nodes. Use {@link CircuitBreakerConfig#DEFAULT} for none of that.
+     */
+    public CircuitBreaker(Callable<V> delegate, String description, SetOfThrowables failOn, long delayInMillis,
+                          int requestVolumeThreshold, double failureRatio, int successThreshold,
+                          CircuitBreakerConfig config, Stopwatch stopwatch) {
+        checkNotNull(config, "Circuit breaker config must be set");
         this.delegate = checkNotNull(delegate, "Circuit breaker action must be set");
         this.description = checkNotNull(description, "Circuit breaker action description must be set");
-        this.failOn = checkNotNull(failOn, "Set of fail-on throwables must be set");
+        this.failOn = new ExceptionClassifier(checkNotNull(failOn, "Set of fail-on throwables must be set"),
+                SetOfThrowables.EMPTY);
         this.delayInMillis = check(delayInMillis, delayInMillis >= 0, "Circuit breaker delay must be >= 0");
+        this.openDelayBackoff = config.openDelayBackoff;
         this.rollingWindowSize = check(requestVolumeThreshold, requestVolumeThreshold > 0, "Circuit breaker rolling window size must be > 0");
         this.failureThreshold = check((int) (failureRatio * requestVolumeThreshold), failureRatio >= 0.0 && failureRatio <= 1.0, "Circuit breaker rolling window failure ratio must be >= 0 && <= 1");
         this.successThreshold = check(successThreshold, successThreshold > 0, "Circuit breaker success threshold must be > 0");
-        this.stopwatch = checkNotNull(stopwatch, "Stopwatch must be set");
+        this.slowCallDurationInNanos = config.slowCallDurationInMillis <= 0
+                ? 0 : TimeUnit.MILLISECONDS.toNanos(config.slowCallDurationInMillis);
+        this.slowCallThreshold = (int) (config.slowCallRatio * requestVolumeThreshold);
+        this.maxConcurrentTrials = config.maxConcurrentTrials <= 0 ? Integer.MAX_VALUE : config.maxConcurrentTrials;
+        this.rejectionMode = config.rejectionMode;
+        this.rollingWindowFactory = config.rollingWindowFactory;
+        this.stateStore = config.stateStore;
+        this.stopwatch = Stopwatch.withNanos(checkNotNull(stopwatch, "Stopwatch must be set"));
+
+        this.state = new AtomicReference<>(newClosedState());
 
-        this.rollingWindow = RollingWindow.create(rollingWindowSize, failureThreshold);
+        this.openMessage = description + " circuit breaker is open";
+        this.halfOpenMessage = description + " circuit breaker is half-open";
+        if (rejectionMode == RejectionMode.SHARED) {
+            this.sharedOpenException = new StacklessCircuitBreakerOpenException(openMessage);
+            this.sharedOpenException.initCause(null); // prevents setting the cause later
+            this.sharedHalfOpenException = new StacklessCircuitBreakerOpenException(halfOpenMessage);
+            this.sharedHalfOpenException.initCause(null); // prevents setting the cause later
+        } else {
+            this.sharedOpenException = null;
+            this.sharedHalfOpenException = null;
+        }
+
+        // must be last, the store may call the listener immediately
+        stateStore.subscribe(description, stateListener);
     }
 
     @Override
     public V call() throws Exception {
-        int state = this.state;
-        switch (state) {
+        Object result = invoke();
+        if (result == REJECTED_OPEN || result == REJECTED_HALF_OPEN) {
+            throw rejection(result == REJECTED_HALF_OPEN);
+        }
+        @SuppressWarnings("unchecked")
+        V value = (V) result;
+        return value;
+    }
+
+    /**
+     * Same as {@link #call()}, except when the circuit breaker rejects the invocation. In that case, instead of
+     * throwing {@link CircuitBreakerOpenException}, a rejected {@link CallResult} is returned. Exceptions thrown
+     * by the guarded action are still propagated. Rejecting an invocation this way doesn't allocate.
+     */
+    public CallResult<V> tryCall() throws Exception {
+        Object result = invoke();
+        if (result == REJECTED_OPEN || result == REJECTED_HALF_OPEN) {
+            return CallResult.rejected();
+        }
+        @SuppressWarnings("unchecked")
+        V value = (V) result;
+        return CallResult.of(value);
+    }
+
+    /**
+     * Unsubscribes from the {@link CircuitStateStore}, so that the store no longer references this circuit breaker.
+     * The circuit breaker keeps working afterwards, but it no longer adopts transitions of other nodes.
+     * Needs to be called when the circuit breaker is no longer used and its state is shared.
+     */
+    public void close() {
+        stateStore.unsubscribe(description, stateListener);
+    }
+
+    public CircuitBreakerMetrics metrics() {
+        return metrics;
+    }
+
+    CircuitBreakerState currentState() {
+        int id = state.get().id;
+        switch (id) {
             case STATE_CLOSED:
-                return inClosed();
+                return CircuitBreakerState.CLOSED;
             case STATE_OPEN:
-                return inOpen();
+                return CircuitBreakerState.OPEN;
             case STATE_HALF_OPEN:
-                return inHalfOpen();
+                return CircuitBreakerState.HALF_OPEN;
+            default:
+                throw new AssertionError("Invalid circuit breaker state: " + id);
+        }
+    }
+
+    long currentOpenTimeInMillis() {
+        State state = this.state.get();
+        return state.id == STATE_OPEN ? elapsedInMillis(state.openedAt) : 0;
+    }
+
+    double currentFailureRatio() {
+        State state = this.state.get();
+        return state.id == STATE_CLOSED ? state.rollingWindow.failureRatio() : Double.NaN;
+    }
+
+    double currentSlowCallRatio() {
+        State state = this.state.get();
+        return state.id == STATE_CLOSED && state.slowCallWindow != null ? state.slowCallWindow.failureRatio() : Double.NaN;
+    }
+
+    private CircuitBreakerOpenException rejection(boolean halfOpen) {
+        switch (rejectionMode) {
+            case STACK_TRACE:
+                return new CircuitBreakerOpenException(halfOpen ? halfOpenMessage : openMessage);
+            case STACKLESS:
+                return new StacklessCircuitBreakerOpenException(halfOpen ? halfOpenMessage : openMessage);
+            case SHARED:
+                return halfOpen ? sharedHalfOpenException : sharedOpenException;
             default:
-                throw new AssertionError("Invalid circuit breaker state: " + state);
+                throw new AssertionError("Invalid rejection mode: " + rejectionMode);
         }
     }
 
-    private V inClosed() throws Exception {
+    // returns either the result of the guarded action, or one of the REJECTED_* markers
+    private Object invoke() throws Exception {
+        State state = this.state.get();
+        switch (state.id) {
+            case STATE_CLOSED:
+                return inClosed(state);
+            case STATE_OPEN:
+                return inOpen(state);
+            case STATE_HALF_OPEN:
+                return inHalfOpen(state);
+            default:
+                throw new AssertionError("Invalid circuit breaker state: " + state.id);
+        }
+    }
+
+    private V inClosed(State state) throws Exception {
+        // an attempt that can't finish in time is neither made nor recorded
+        Deadline.current().checkNotExpired(description);
+        metrics.recordAcceptedInClosed();
+        long start = slowCallDurationInNanos > 0 ? stopwatch.nowInNanos() : 0;
         try {
             V result = delegate.call();
-            boolean failureThresholdReached = rollingWindow.recordSuccess();
+            metrics.recordSuccess();
+            boolean failureThresholdReached = state.rollingWindow.recordSuccess();
+            // intentionally not short-circuiting, the invocation must always be recorded in both windows
+            failureThresholdReached |= recordSlowCall(state, start);
             if (failureThresholdReached) {
-                fromClosedToOpen();
+                fromClosedToOpen(state);
             }
             return result;
         } catch (Throwable e) {
-            boolean failureThresholdReached = failOn.includes(e.getClass())
-                    ? rollingWindow.recordFailure() : rollingWindow.recordSuccess();
+            boolean failureThresholdReached;
+            if (failOn.handles(e)) {
+                metrics.recordFailure();
+                failureThresholdReached = state.rollingWindow.recordFailure();
+            } else {
+                metrics.recordSuccess();
+                failureThresholdReached = state.rollingWindow.recordSuccess();
+            }
+            failureThresholdReached |= recordSlowCall(state, start);
             if (failureThresholdReached) {
-                fromClosedToOpen();
+                fromClosedToOpen(state);
             }
             throw e;
         }
     }
 
-    private V inOpen() throws Exception {
-        if (runningStopwatch.elapsedTimeInMillis() < delayInMillis) {
-            throw new CircuitBreakerOpenException(description + " circuit breaker is open");
+    // returns whether the slow call threshold has been reached
+    private boolean recordSlowCall(State state, long start) {
+        if (slowCallDurationInNanos == 0) {
+            return false;
+        }
+
+        if (isSlow(start)) {
+            metrics.recordSlow();
+            return state.slowCallWindow.recordFailure();
         } else {
-            fromOpenToHalfOpen();
-            return inHalfOpen();
+            return state.slowCallWindow.recordSuccess();
         }
     }
 
-    private V inHalfOpen() throws Exception {
+    private boolean isSlow(long start) {
+        return slowCallDurationInNanos > 0 && stopwatch.elapsedInNanos(start) >= slowCallDurationInNanos;
+    }
+
+    private long elapsedInMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(stopwatch.elapsedInNanos(start));
+    }
+
+    private Object inOpen(State state) throws Exception {
+        if (stopwatch.elapsedInNanos(state.openedAt) < state.openDelayInNanos) {
+            metrics.recordRejected();
+            return REJECTED_OPEN;
+        } else {
+            fromOpenToHalfOpen(state);
+            // if we lost the race, another thread has already moved the circuit breaker forward,
+            // so just act according to whatever state it is in now
+            return invoke();
+        }
+    }
+
+    private Object inHalfOpen(State state) throws Exception {
+        Deadline.current().checkNotExpired(description);
+        boolean limitedTrials = maxConcurrentTrials != Integer.MAX_VALUE;
+        if (limitedTrials && !acquireTrialPermit(state)) {
+            metrics.recordRejected();
+            return REJECTED_HALF_OPEN;
+        }
+
+        metrics.recordAcceptedInHalfOpen();
+        long start = slowCallDurationInNanos > 0 ? stopwatch.nowInNanos() : 0;
         try {
             V result = delegate.call();
-            int successes = consecutiveSuccesses.incrementAndGet();
+            metrics.recordSuccess();
+            if (isSlow(start)) {
+                metrics.recordSlow();
+                fromHalfOpenToOpen(state);
+                return result;
+            }
+            int successes = state.consecutiveSuccesses.incrementAndGet();
             if (successes >= successThreshold) {
-                fromHalfOpenToClosed();
+                fromHalfOpenToClosed(state);
             }
             return result;
         } catch (Throwable e) {
-            fromHalfOpenToOpen();
+            metrics.recordFailure();
+            fromHalfOpenToOpen(state);
             throw e;
+        } finally {
+            if (limitedTrials) {
+                // if the trial failed, the state is no longer current, so releasing the permit doesn't matter
+                state.availableTrialPermits.incrementAndGet();
+            }
+        }
+    }
+
+    private static boolean acquireTrialPermit(State state) {
+        while (true) {
+            int permits = state.availableTrialPermits.get();
+            if (permits <= 0) {
+                return false;
+            }
+            if (state.availableTrialPermits.compareAndSet(permits, permits - 1)) {
+                return true;
+            }
         }
     }
 
-    // the state transitions must be happen atomically
-    // currently, the methods are synchronized, but it should be possible to embed all the state variables
-    // into an extra class, hold an AtomicReference to it and do a CAS
+    private void fromClosedToOpen(State expected) {
+        long openDelay = openDelayBackoff.delay(delayInMillis, 0);
+        if (this.state.compareAndSet(expected, State.open(stopwatch.nowInNanos(), openDelay, 0))) {
+            metrics.recordOpened();
+            publishTransition(CircuitBreakerState.OPEN, openDelay, expected.rollingWindow.failureRatio());
+        }
+    }
 
-    private synchronized void fromClosedToOpen() {
-        if (state == STATE_CLOSED) {
-            state = STATE_OPEN;
-            runningStopwatch = stopwatch.start();
+    private void fromOpenToHalfOpen(State expected) {
+        if (this.state.compareAndSet(expected, State.halfOpen(maxConcurrentTrials, expected.reopenings))) {
+            metrics.recordHalfOpened(elapsedInMillis(expected.openedAt));
+            // other nodes stay OPEN for (at least) the open delay while this node performs trial invocations
+            publishTransition(CircuitBreakerState.HALF_OPEN, delayInMillis, Double.NaN);
         }
     }
 
-    private synchronized void fromOpenToHalfOpen() {
-        if (state == STATE_OPEN) {
-            state = STATE_HALF_OPEN;
-            consecutiveSuccesses = new AtomicInteger(0);
+    private void fromHalfOpenToClosed(State expected) {
+        if (this.state.compareAndSet(expected, newClosedState())) {
+            metrics.recordClosed(0);
+            publishTransition(CircuitBreakerState.CLOSED, 0, Double.NaN);
         }
     }
 
-    private synchronized void fromHalfOpenToClosed() {
-        if (state == STATE_HALF_OPEN) {
-            state = STATE_CLOSED;
-            rollingWindow = RollingWindow.create(rollingWindowSize, failureThreshold);
+    private void fromHalfOpenToOpen(State expected) {
+        int reopenings = expected.reopenings == Integer.MAX_VALUE ? Integer.MAX_VALUE : expected.reopenings + 1;
+        long openDelay = openDelayBackoff.delay(delayInMillis, reopenings);
+        if (this.state.compareAndSet(expected, State.open(stopwatch.nowInNanos(), openDelay, reopenings))) {
+            metrics.recordOpened();
+            publishTransition(CircuitBreakerState.OPEN, openDelay, Double.NaN);
         }
     }
 
-    private synchronized void fromHalfOpenToOpen() {
-        if (state == STATE_HALF_OPEN) {
-            state = STATE_OPEN;
-            runningStopwatch = stopwatch.start();
+    private void publishTransition(CircuitBreakerState state, long durationInMillis, double failureRatio) {
+        if (stateStore != CircuitStateStore.NONE) {
+            stateStore.publish(new CircuitStateEvent(description, state, System.currentTimeMillis(),
+                    durationInMillis, failureRatio));
+        }
+    }
+
+    // called by the state store when another node publishes a transition; the state is replaced
+    // with a CAS, same as in the from*To* methods, but the transition is not published again
+    private void adoptTransition(CircuitStateEvent event) {
+        State state = this.state.get();
+        if (event.state() == CircuitBreakerState.CLOSED) {
+            if (state.id != STATE_CLOSED && this.state.compareAndSet(state, newClosedState())) {
+                metrics.recordClosed(state.id == STATE_OPEN ? elapsedInMillis(state.openedAt) : 0);
+            }
+            return;
+        }
+
+        // events come from other nodes, possibly over the network, so they are never trusted to keep
+        // this circuit breaker open for longer than it could ever open by itself
+        long remaining = Math.min(event.remainingInMillis(System.currentTimeMillis()),
+                openDelayBackoff.maxDelay(delayInMillis));
+        if (remaining <= 0) {
+            return;
+        }
+
+        if (state.id == STATE_CLOSED || (state.id == STATE_HALF_OPEN && event.state() == CircuitBreakerState.OPEN)) {
+            // the dependency is still failing; a HALF_OPEN circuit breaker only ignores another HALF_OPEN one,
+            // so that two nodes that started trial invocations at the same time don't stop each other
+            if (this.state.compareAndSet(state, State.open(stopwatch.nowInNanos(), remaining, state.reopenings))) {
+                metrics.recordOpened();
+            }
+        } else if (state.id == STATE_OPEN) {
+            long elapsed = elapsedInMillis(state.openedAt);
+            if (remaining > state.openDelayInMillis - elapsed) {
+                // stays OPEN, just for longer; the original opening time is kept for the open time metric
+                long openDelay = remaining > Long.MAX_VALUE - elapsed ? Long.MAX_VALUE : elapsed + remaining;
+                this.state.compareAndSet(state, State.open(state.openedAt, openDelay, state.reopenings));
+            }
+        }
+    }
+
+    private State newClosedState() {
+        RollingWindow rollingWindow = rollingWindowFactory.create(rollingWindowSize, failureThreshold);
+        RollingWindow slowCallWindow = slowCallDurationInNanos > 0
+                ? rollingWindowFactory.create(rollingWindowSize, slowCallThreshold) : null;
+        return State.closed(rollingWindow, slowCallWindow);
+    }
+
+    /**
+     * Immutable holder of the circuit breaker state. All fields are {@code final}, so an instance is safely
+     * published to all threads that obtain it from the {@code AtomicReference}. Only the fields relevant
+     * to given state are set, the others are {@code null}.
+     */
+    private static final class State {
+        final int id;
+        final RollingWindow rollingWindow; // only consulted in CLOSED
+        final RollingWindow slowCallWindow; // only consulted in CLOSED, null if slow calls are not tracked
+        final long openedAt; // `Stopwatch.nowInNanos()`, only consulted in OPEN
+        final long openDelayInMillis; // only consulted in OPEN
+        final long openDelayInNanos; // only consulted in OPEN
+        final int reopenings; // consecutive failed trials, only consulted in OPEN and HALF_OPEN
+        final AtomicInteger consecutiveSuccesses; // only consulted in HALF_OPEN
+        final AtomicInteger availableTrialPermits; // only consulted in HALF_OPEN
+
+        static State closed(RollingWindow rollingWindow, RollingWindow slowCallWindow) {
+            return new State(STATE_CLOSED, rollingWindow, slowCallWindow, 0, 0, 0, null, null);
+        }
+
+        static State open(long openedAt, long openDelayInMillis, int reopenings) {
+            return new State(STATE_OPEN, null, null, openedAt, openDelayInMillis, reopenings, null, null);
+        }
+
+        static State halfOpen(int trialPermits, int reopenings) {
+            return new State(STATE_HALF_OPEN, null, null, 0, 0, reopenings, new AtomicInteger(0), new AtomicInteger(trialPermits));
+        }
+
+        private State(int id, RollingWindow rollingWindow, RollingWindow slowCallWindow, long openedAt,
+                      long openDelayInMillis, int reopenings, AtomicInteger consecutiveSuccesses,
+                      AtomicInteger availableTrialPermits) {
+            this.id = id;
+            this.rollingWindow = rollingWindow;
+            this.slowCallWindow = slowCallWindow;
+            this.openedAt = openedAt;
+            this.openDelayInMillis = openDelayInMillis;
+            this.openDelayInNanos = TimeUnit.MILLISECONDS.toNanos(openDelayInMillis);
+            this.reopenings = reopenings;
+            this.consecutiveSuccesses = consecutiveSuccesses;
+            this.availableTrialPermits = availableTrialPermits;
         }
     }
 }
@@ -0,0 +1,111 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Optional configuration of a {@link CircuitBreaker} that goes beyond the MicroProfile Fault Tolerance
+ * circuit breaker. Instances are immutable; each {@code with*} method returns a new instance, so configurations
+ * can be built step by step starting from {@link #DEFAULT} and freely shared among circuit breakers.
+ */
+public final class CircuitBreakerConfig {
+    /**
+     * Behaves exactly like the MicroProfile Fault Tolerance circuit breaker: the open delay is constant,
+     * slow calls are not tracked, the number of trial invocations is not limited, rejections have a full
+     * stack trace, the rolling window counts invocations and the state is not shared.
+     */
+    public static final CircuitBreakerConfig DEFAULT = new CircuitBreakerConfig(OpenDelayBackoff.NONE, 0, 0.0, 0,
+            RejectionMode.STACK_TRACE, RollingWindow.Factory.DEFAULT, CircuitStateStore.NONE);
+
+    final OpenDelayBackoff openDelayBackoff;
+    final long slowCallDurationInMillis;
+    final double slowCallRatio;
+    final int maxConcurrentTrials;
+    final RejectionMode rejectionMode;
+    final RollingWindow.Factory rollingWindowFactory;
+    final CircuitStateStore stateStore;
+
+    private CircuitBreakerConfig(OpenDelayBackoff openDelayBackoff, long slowCallDurationInMillis,
+                                 double slowCallRatio, int maxConcurrentTrials, RejectionMode rejectionMode,
+                                 RollingWindow.Factory rollingWindowFactory, CircuitStateStore stateStore) {
+        this.openDelayBackoff = openDelayBackoff;
+        this.slowCallDurationInMillis = slowCallDurationInMillis;
+        this.slowCallRatio = slowCallRatio;
+        this.maxConcurrentTrials = maxConcurrentTrials;
+        this.rejectionMode = rejectionMode;
+        this.rollingWindowFactory = rollingWindowFactory;
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * Prolongs the open delay when the dependency stays unavailable, see {@link OpenDelayBackoff}.
+     */
+    public CircuitBreakerConfig withOpenDelayBackoff(OpenDelayBackoff openDelayBackoff) {
+        checkNotNull(openDelayBackoff, "Circuit breaker open delay backoff must be set");
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+
+    /**
+     * Trips the circuit breaker when the dependency becomes slow. Each invocation that takes at least
+     * {@code slowCallDurationInMillis} is considered slow. Slow invocations are tracked in a separate rolling window
+     * of the same kind and size as the rolling window of failures, and when the ratio of slow invocations reaches
+     * {@code slowCallRatio}, the circuit breaker opens, same as if the failure ratio was reached. In the HALF_OPEN
+     * state, a slow trial invocation opens the circuit breaker again, same as a failed trial invocation.
+     * When {@code slowCallDurationInMillis} is {@code <= 0}, invocations are not timed at all.
+     */
+    public CircuitBreakerConfig withSlowCalls(long slowCallDurationInMillis, double slowCallRatio) {
+        check(slowCallRatio, slowCallRatio >= 0.0 && slowCallRatio <= 1.0,
+                "Circuit breaker rolling window slow call ratio must be >= 0 && <= 1");
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+
+    /**
+     * Limits the number of trial invocations that may be in flight in the HALF_OPEN state. When the limit
+     * is reached, other invocations are rejected with {@link CircuitBreakerOpenException} until a trial invocation
+     * succeeds or the circuit breaker moves to another state. When {@code maxConcurrentTrials} is {@code <= 0},
+     * the number of trial invocations is not limited.
+     */
+    public CircuitBreakerConfig withMaxConcurrentTrials(int maxConcurrentTrials) {
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+
+    /**
+     * Configures how invocations are rejected, see {@link RejectionMode}.
+     */
+    public CircuitBreakerConfig withRejectionMode(RejectionMode rejectionMode) {
+        checkNotNull(rejectionMode, "Rejection mode must be set");
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+
+    /**
+     * Configures the kind of rolling window, see {@link RollingWindow.Factory}.
+     */
+    public CircuitBreakerConfig withRollingWindow(RollingWindow.Factory rollingWindowFactory) {
+        checkNotNull(rollingWindowFactory, "Rolling window factory must be set");
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+
+    /**
+     * Shares the circuit breaker state with other nodes through a {@link CircuitStateStore}, where the circuit
+     * breaker is identified by its description. The circuit breaker publishes each of its transitions
+     * to the store. When another node publishes that the circuit breaker is OPEN, this circuit breaker opens
+     * for the rest of the published delay, unless it is already OPEN. When another node publishes that it is
+     * HALF_OPEN, this circuit breaker stays OPEN (or opens, if it was CLOSED) while the other node performs
+     * trial invocations. When another node publishes that it is CLOSED, this circuit breaker closes.
+     * Transitions of other nodes are adopted asynchronously, never on the invocation path, and they are
+     * not published again. A published delay is never adopted for longer than the longest delay this circuit
+     * breaker could compute by itself, see {@link OpenDelayBackoff}.
+     */
+    public CircuitBreakerConfig withStateStore(CircuitStateStore stateStore) {
+        checkNotNull(stateStore, "Circuit state store must be set");
+        return new CircuitBreakerConfig(openDelayBackoff, slowCallDurationInMillis, slowCallRatio,
+                maxConcurrentTrials, rejectionMode, rollingWindowFactory, stateStore);
+    }
+}
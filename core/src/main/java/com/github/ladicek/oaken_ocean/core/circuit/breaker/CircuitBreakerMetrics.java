@@ -0,0 +1,149 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-only view of the circuit breaker statistics. The counters are {@link LongAdder}s, so updating them
+ * from the invocation path scales with contention and reading them never blocks the circuit breaker.
+ * The values are not a consistent snapshot: each of them is read independently.
+ */
+public final class CircuitBreakerMetrics {
+    private final CircuitBreaker<?> circuitBreaker;
+
+    private final LongAdder acceptedInClosed = new LongAdder();
+    private final LongAdder acceptedInHalfOpen = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+
+    private final LongAdder timesClosed = new LongAdder();
+    private final LongAdder timesOpened = new LongAdder();
+    private final LongAdder timesHalfOpened = new LongAdder();
+
+    private final LongAdder completedOpenTimeInMillis = new LongAdder();
+
+    CircuitBreakerMetrics(CircuitBreaker<?> circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreakerState state() {
+        return circuitBreaker.currentState();
+    }
+
+    /**
+     * Number of invocations that were let through while the circuit breaker was CLOSED.
+     */
+    public long acceptedInClosed() {
+        return acceptedInClosed.sum();
+    }
+
+    /**
+     * Number of trial invocations that were let through while the circuit breaker was HALF_OPEN.
+     */
+    public long acceptedInHalfOpen() {
+        return acceptedInHalfOpen.sum();
+    }
+
+    /**
+     * Number of invocations that were rejected, either because the circuit breaker was OPEN,
+     * or because it was HALF_OPEN and no more trial invocations were allowed.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of invocations that were let through and considered successful.
+     */
+    public long succeeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * Number of invocations that were let through and considered failed.
+     */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Number of invocations that were let through and considered slow. Slow invocations are also counted
+     * as either succeeded or failed. Only counted if slow call detection is enabled.
+     */
+    public long slow() {
+        return slow.sum();
+    }
+
+    public long timesClosed() {
+        return timesClosed.sum();
+    }
+
+    public long timesOpened() {
+        return timesOpened.sum();
+    }
+
+    public long timesHalfOpened() {
+        return timesHalfOpened.sum();
+    }
+
+    /**
+     * Total time the circuit breaker has spent in the OPEN state, including the current OPEN period, if any.
+     */
+    public long openTimeInMillis() {
+        return completedOpenTimeInMillis.sum() + circuitBreaker.currentOpenTimeInMillis();
+    }
+
+    /**
+     * Failure ratio of the current rolling window, if the circuit breaker is CLOSED, or {@code NaN} otherwise.
+     */
+    public double failureRatio() {
+        return circuitBreaker.currentFailureRatio();
+    }
+
+    /**
+     * Ratio of slow invocations in the current rolling window, if the circuit breaker is CLOSED and slow call
+     * detection is enabled, or {@code NaN} otherwise.
+     */
+    public double slowCallRatio() {
+        return circuitBreaker.currentSlowCallRatio();
+    }
+
+    void recordAcceptedInClosed() {
+        acceptedInClosed.increment();
+    }
+
+    void recordAcceptedInHalfOpen() {
+        acceptedInHalfOpen.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordSuccess() {
+        succeeded.increment();
+    }
+
+    void recordFailure() {
+        failed.increment();
+    }
+
+    void recordSlow() {
+        slow.increment();
+    }
+
+    void recordClosed(long openTimeInMillis) {
+        timesClosed.increment();
+        completedOpenTimeInMillis.add(openTimeInMillis);
+    }
+
+    void recordOpened() {
+        timesOpened.increment();
+    }
+
+    void recordHalfOpened(long openTimeInMillis) {
+        timesHalfOpened.increment();
+        completedOpenTimeInMillis.add(openTimeInMillis);
+    }
+}
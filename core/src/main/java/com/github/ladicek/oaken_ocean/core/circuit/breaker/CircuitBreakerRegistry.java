@@ -0,0 +1,157 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.RunningStopwatch;
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Holds one circuit breaker per key, e.g. per downstream host or per tenant. Circuit breakers are created lazily
+ * by the {@code circuitBreakerFactory}, which serves as a configuration template shared by all keys.
+ * <p>
+ * Looking up an existing circuit breaker is a single lock-free {@link ConcurrentHashMap} read, plus an occasional
+ * update of the last access time (at most once per 100 millis per key).
+ * <p>
+ * Circuit breakers that are CLOSED and haven't been accessed for {@code maxIdleTimeInMillis} are evicted.
+ * When there are more than {@code maxSize} circuit breakers, the least recently accessed CLOSED circuit breakers
+ * are evicted as well. Circuit breakers that are OPEN or HALF_OPEN are never evicted, because that would
+ * forget an ongoing outage; the registry may therefore temporarily exceed {@code maxSize}. Eviction is performed
+ * whenever {@link #evictIdle()} is called, which is meant to be done periodically, and when a new circuit breaker
+ * is created and the registry exceeds {@code maxSize} by more than 10 %. Evicted circuit breakers are
+ * {@linkplain CircuitBreaker#close() closed}.
+ * <p>
+ * Eviction scans and sorts all circuit breakers, so it's amortized over many creations: it evicts down
+ * to {@code maxSize}, and if that isn't possible, the next eviction on creation only happens once the registry
+ * grows by another 10 %.
+ */
+public class CircuitBreakerRegistry<K, V> {
+    private static final long ACCESS_TIME_RESOLUTION_IN_MILLIS = 100;
+
+    private final Function<? super K, ? extends CircuitBreaker<V>> circuitBreakerFactory;
+    private final int maxSize;
+    private final long maxIdleTimeInMillis;
+    private final RunningStopwatch clock;
+
+    private final ConcurrentHashMap<K, Entry<V>> circuitBreakers = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    // creating a circuit breaker evicts when the size exceeds this
+    private volatile int evictionThreshold;
+
+    public CircuitBreakerRegistry(Function<? super K, ? extends CircuitBreaker<V>> circuitBreakerFactory,
+                                  int maxSize, long maxIdleTimeInMillis, Stopwatch stopwatch) {
+        this.circuitBreakerFactory = checkNotNull(circuitBreakerFactory, "Circuit breaker factory must be set");
+        this.maxSize = check(maxSize, maxSize > 0, "Max size must be > 0");
+        this.maxIdleTimeInMillis = check(maxIdleTimeInMillis, maxIdleTimeInMillis > 0, "Max idle time must be > 0");
+        this.clock = checkNotNull(stopwatch, "Stopwatch must be set").start();
+        this.evictionThreshold = evictionThreshold(maxSize);
+    }
+
+    public CircuitBreaker<V> get(K key) {
+        Entry<V> entry = circuitBreakers.get(key);
+        if (entry == null) {
+            entry = circuitBreakers.computeIfAbsent(key, k -> new Entry<>(circuitBreakerFactory.apply(k), clock.elapsedTimeInMillis()));
+            if (circuitBreakers.size() > evictionThreshold) {
+                evict();
+            }
+        }
+        entry.touch(clock.elapsedTimeInMillis());
+        return entry.circuitBreaker;
+    }
+
+    public int size() {
+        return circuitBreakers.size();
+    }
+
+    /**
+     * Evicts CLOSED circuit breakers that haven't been accessed for {@code maxIdleTimeInMillis} and if there's
+     * still more than {@code maxSize} circuit breakers, also the least recently accessed CLOSED circuit breakers.
+     * If another thread is already evicting, returns immediately.
+     */
+    public void evictIdle() {
+        evict();
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = clock.elapsedTimeInMillis();
+            List<EvictionCandidate<K, V>> candidates = new ArrayList<>();
+            for (Map.Entry<K, Entry<V>> mapEntry : circuitBreakers.entrySet()) {
+                Entry<V> entry = mapEntry.getValue();
+                if (entry.circuitBreaker.currentState() != CircuitBreakerState.CLOSED) {
+                    continue;
+                }
+                long lastAccess = entry.lastAccess;
+                if (now - lastAccess >= maxIdleTimeInMillis) {
+                    remove(mapEntry.getKey(), entry);
+                } else {
+                    candidates.add(new EvictionCandidate<>(mapEntry.getKey(), entry, lastAccess));
+                }
+            }
+
+            int excess = circuitBreakers.size() - maxSize;
+            if (excess > 0) {
+                candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+                for (int i = 0; i < excess && i < candidates.size(); i++) {
+                    EvictionCandidate<K, V> candidate = candidates.get(i);
+                    remove(candidate.key, candidate.entry);
+                }
+            }
+            evictionThreshold = evictionThreshold(Math.max(circuitBreakers.size(), maxSize));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static int evictionThreshold(int size) {
+        return size + size / 10;
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        if (circuitBreakers.remove(key, entry)) {
+            entry.circuitBreaker.close();
+        }
+    }
+
+    // last access time is captured once, so that it doesn't change during sorting
+    private static final class EvictionCandidate<K, V> {
+        final K key;
+        final Entry<V> entry;
+        final long lastAccess;
+
+        EvictionCandidate(K key, Entry<V> entry, long lastAccess) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Entry<V> {
+        final CircuitBreaker<V> circuitBreaker;
+        volatile long lastAccess;
+
+        Entry(CircuitBreaker<V> circuitBreaker, long now) {
+            this.circuitBreaker = circuitBreaker;
+            this.lastAccess = now;
+        }
+
+        void touch(long now) {
+            // avoid writing to the shared cache line on every access
+            if (now - lastAccess >= ACCESS_TIME_RESOLUTION_IN_MILLIS) {
+                lastAccess = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+public enum CircuitBreakerState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
@@ -0,0 +1,64 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * A transition of a circuit breaker identified by {@code name}, as published to a {@link CircuitStateStore}.
+ * The time is wall-clock time in milliseconds since the epoch, because it has to be meaningful in other processes.
+ * For the OPEN and HALF_OPEN states, {@code durationInMillis} is how long the state lasts: the open delay
+ * for OPEN, and how long the trial invocations are expected to take for HALF_OPEN. The failure ratio
+ * is the ratio in the rolling window at the time of the transition, or {@code NaN} if not known.
+ */
+public final class CircuitStateEvent {
+    private final String name;
+    private final CircuitBreakerState state;
+    private final long sinceMillis;
+    private final long durationInMillis;
+    private final double failureRatio;
+
+    public CircuitStateEvent(String name, CircuitBreakerState state, long sinceMillis, long durationInMillis,
+                             double failureRatio) {
+        this.name = checkNotNull(name, "Circuit breaker name must be set");
+        this.state = checkNotNull(state, "Circuit breaker state must be set");
+        this.sinceMillis = sinceMillis;
+        this.durationInMillis = Math.max(durationInMillis, 0);
+        this.failureRatio = failureRatio;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public CircuitBreakerState state() {
+        return state;
+    }
+
+    public long sinceMillis() {
+        return sinceMillis;
+    }
+
+    public long durationInMillis() {
+        return durationInMillis;
+    }
+
+    public double failureRatio() {
+        return failureRatio;
+    }
+
+    /**
+     * Returns how long the OPEN or HALF_OPEN state still lasts at time {@code now}, or {@code 0}
+     * if it has already expired.
+     */
+    public long remainingInMillis(long now) {
+        long end = sinceMillis + durationInMillis;
+        if (end < sinceMillis) {
+            return Long.MAX_VALUE; // overflow, the state lasts for a very long time
+        }
+        return Math.max(end - now, 0);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + state + " since " + sinceMillis + " for " + durationInMillis + " ms";
+    }
+}
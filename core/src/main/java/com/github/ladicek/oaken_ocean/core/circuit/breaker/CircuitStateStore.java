@@ -0,0 +1,52 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.util.function.Consumer;
+
+/**
+ * Shares circuit breaker transitions among multiple nodes, which may be threads, processes or hosts,
+ * so that they converge on a shared view of a dependency's health. Each node has its own store instance
+ * and at most one circuit breaker with given name. Transitions published to a store are delivered
+ * to the subscribers of all other nodes, but never back to the subscribers of the publishing store.
+ * <p>
+ * Implementations must be thread-safe. Circuit breakers publish transitions on the invocation path,
+ * so {@link #publish(CircuitStateEvent)} must not block: the actual sharing must happen asynchronously.
+ */
+public interface CircuitStateStore {
+    /**
+     * Publishes a transition of a local circuit breaker. Must not block.
+     */
+    void publish(CircuitStateEvent event);
+
+    /**
+     * Subscribes to transitions of the circuit breaker called {@code name} published by other nodes.
+     * The {@code listener} is called from a thread owned by the store. If the store knows about
+     * a transition published before subscribing, the {@code listener} may be called with it
+     * on the calling thread, before this method returns.
+     */
+    void subscribe(String name, Consumer<CircuitStateEvent> listener);
+
+    /**
+     * Cancels the subscription of the {@code listener} to the circuit breaker called {@code name}, so that
+     * the store no longer references the listener and may release resources it holds for that name.
+     * A delivery that is already in progress may still call the {@code listener}. Does nothing if there's
+     * no such subscription.
+     */
+    void unsubscribe(String name, Consumer<CircuitStateEvent> listener);
+
+    /**
+     * Doesn't share anything.
+     */
+    CircuitStateStore NONE = new CircuitStateStore() {
+        @Override
+        public void publish(CircuitStateEvent event) {
+        }
+
+        @Override
+        public void subscribe(String name, Consumer<CircuitStateEvent> listener) {
+        }
+
+        @Override
+        public void unsubscribe(String name, Consumer<CircuitStateEvent> listener) {
+        }
+    };
+}
@@ -0,0 +1,105 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Shares circuit breaker transitions among nodes in a single JVM. This is mainly a stand-in for a distributed
+ * store, e.g. in tests, but it can also be used to share the state of multiple circuit breakers guarding
+ * the same dependency. Each instance is one node; additional nodes of the same cluster are created
+ * using {@link #newPeer()}.
+ * <p>
+ * Transitions are delivered on the {@code executor}, which shouldn't run the tasks on the calling thread,
+ * unless delivering transitions on the invocation path is acceptable. The last transition of each circuit breaker
+ * is remembered, so that a newly subscribed circuit breaker learns about it immediately.
+ */
+public final class InMemoryCircuitStateStore implements CircuitStateStore {
+    private final Cluster cluster;
+    private final Map<String, List<Consumer<CircuitStateEvent>>> listeners = new ConcurrentHashMap<>();
+
+    public InMemoryCircuitStateStore(Executor executor) {
+        this(new Cluster(checkNotNull(executor, "Executor must be set")));
+    }
+
+    private InMemoryCircuitStateStore(Cluster cluster) {
+        this.cluster = cluster;
+        cluster.nodes.add(this);
+    }
+
+    /**
+     * Returns a new node of the same cluster as this node.
+     */
+    public InMemoryCircuitStateStore newPeer() {
+        return new InMemoryCircuitStateStore(cluster);
+    }
+
+    @Override
+    public void publish(CircuitStateEvent event) {
+        cluster.latest.put(event.name(), new Published(this, event));
+        cluster.executor.execute(() -> {
+            for (InMemoryCircuitStateStore node : cluster.nodes) {
+                if (node != this) {
+                    node.deliver(event);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(String name, Consumer<CircuitStateEvent> listener) {
+        // not `computeIfAbsent(...).add(...)`, which could add to a list that `unsubscribe` just removed
+        listeners.compute(name, (ignored, list) -> {
+            List<Consumer<CircuitStateEvent>> result = list != null ? list : new CopyOnWriteArrayList<>();
+            result.add(listener);
+            return result;
+        });
+
+        Published published = cluster.latest.get(name);
+        if (published != null && published.origin != this) {
+            listener.accept(published.event);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String name, Consumer<CircuitStateEvent> listener) {
+        listeners.computeIfPresent(name, (ignored, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void deliver(CircuitStateEvent event) {
+        List<Consumer<CircuitStateEvent>> listeners = this.listeners.get(event.name());
+        if (listeners != null) {
+            for (Consumer<CircuitStateEvent> listener : listeners) {
+                listener.accept(event);
+            }
+        }
+    }
+
+    private static final class Cluster {
+        final Executor executor;
+        final List<InMemoryCircuitStateStore> nodes = new CopyOnWriteArrayList<>();
+        final Map<String, Published> latest = new ConcurrentHashMap<>();
+
+        Cluster(Executor executor) {
+            this.executor = executor;
+        }
+    }
+
+    private static final class Published {
+        final InMemoryCircuitStateStore origin;
+        final CircuitStateEvent event;
+
+        Published(InMemoryCircuitStateStore origin, CircuitStateEvent event) {
+            this.origin = origin;
+            this.event = event;
+        }
+    }
+}
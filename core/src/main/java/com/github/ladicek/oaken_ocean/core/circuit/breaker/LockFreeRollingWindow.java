@@ -0,0 +1,90 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the failures in a bitmap stored in an {@link AtomicLongArray} and maintains a running count
+ * of failures, so that checking the failure threshold doesn't have to scan the window.
+ * <p>
+ * Recording an invocation claims the next index using a single atomic increment, then flips the corresponding bit
+ * (if it needs flipping) using a CAS on the bitmap word and adjusts the running count by the difference
+ * between the old and the new bit. No locks are involved and in the common case, no CAS has to be retried.
+ * <p>
+ * Flipping the bit and adjusting the running count are two separate atomic steps, so a concurrent reader may see
+ * one without the other. The running count converges to the number of set bits once the in-flight updates finish;
+ * the failure threshold check tolerates that, because a transient difference is at most the number of concurrent
+ * invocations, same as if they finished a bit earlier or later.
+ * <p>
+ * When more than {@code size} invocations are being recorded concurrently, two of them may claim the same bit
+ * and the older one may win, which is indistinguishable from these invocations finishing in a different order.
+ */
+final class LockFreeRollingWindow implements RollingWindow {
+    private final AtomicLongArray failures;
+    private final int size;
+    private final int failureThreshold;
+
+    private final AtomicLong counter = new AtomicLong(0);
+    private final AtomicInteger failuresCount = new AtomicInteger(0);
+
+    LockFreeRollingWindow(int size, int failureThreshold) {
+        this.failures = new AtomicLongArray((size + 63) / 64);
+        this.size = size;
+        this.failureThreshold = failureThreshold;
+    }
+
+    @Override
+    public boolean recordSuccess() {
+        return record(false);
+    }
+
+    @Override
+    public boolean recordFailure() {
+        return record(true);
+    }
+
+    @Override
+    public double failureRatio() {
+        long invocations = Math.min(counter.get(), size);
+        if (invocations == 0) {
+            return 0.0;
+        }
+
+        return (double) failuresCount.get() / invocations;
+    }
+
+    private boolean record(boolean failure) {
+        long count = counter.getAndIncrement();
+        int index = (int) (count % size);
+
+        int failuresCount = update(index, failure);
+
+        if (count + 1 < size) {
+            return false;
+        }
+
+        return failuresCount >= failureThreshold;
+    }
+
+    /**
+     * Sets the bit at given {@code index} to {@code failure} and returns the running count of failures.
+     */
+    private int update(int index, boolean failure) {
+        int wordIndex = index >>> 6;
+        long mask = 1L << index; // shift distance is implicitly masked to 6 bits
+
+        while (true) {
+            long word = failures.get(wordIndex);
+            boolean currentlyFailure = (word & mask) != 0;
+            if (currentlyFailure == failure) {
+                return failuresCount.get();
+            }
+
+            long newWord = failure ? word | mask : word & ~mask;
+            if (failures.compareAndSet(wordIndex, word, newWord)) {
+                return failuresCount.addAndGet(failure ? 1 : -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link CircuitStateStore} backed by a memory-mapped file, through which circuit breakers in multiple processes
+ * on the same host share their state. Each instance is one node. Each circuit breaker occupies one fixed-size
+ * slot that holds its last published state (CLOSED, OPEN or HALF_OPEN), when was that state entered and for how
+ * long it lasts, the failure ratio at that time, and a version that is incremented on each update.
+ * The slot is claimed when a circuit breaker subscribes and released when it unsubscribes or when the file
+ * is closed. Because the slot survives process restarts, a circuit breaker that is created while another process
+ * has it OPEN starts OPEN. A released slot is reused for another name once no process has it claimed and its
+ * OPEN or HALF_OPEN state is over. Slots claimed by a process that crashed are never reused.
+ * <p>
+ * Publishing a transition never locks: it only adds the transition to a lock-free queue. A background thread
+ * writes the queued transitions every {@code pollIntervalInMillis}, under an exclusive {@link FileLock}
+ * of the slot, which works across processes. The same background thread then polls the versions of all subscribed
+ * slots, without locking, and only reads the rest of a slot (under a shared lock) when its version changes.
+ * Sharing is best effort: if the file can't be locked, the update is skipped and circuit breakers simply continue
+ * with their local state.
+ * <p>
+ * The file is created if it doesn't exist. If it does exist, its number of slots is kept.
+ * When the file is closed, pending transitions are written and the background thread stops.
+ */
+public final class MappedCircuitStateFile implements CircuitStateStore, Closeable {
+    private static final long DEFAULT_POLL_INTERVAL_IN_MILLIS = 10;
+    private static final long CLOSE_TIMEOUT_IN_MILLIS = 1000;
+
+    static final int HEADER_SIZE = 128;
+    static final int SLOT_SIZE = 128;
+    static final int MAX_NAME_LENGTH = SLOT_SIZE - SharedCircuitState.NAME_OFFSET;
+
+    private static final long MAGIC = 0x4F4F_4342_5354_4154L; // "OOCBSTAT"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_VERSION_OFFSET = 8;
+    private static final int SLOT_COUNT_OFFSET = 12;
+
+    // file locks are held on behalf of the whole JVM and overlapping locks in one JVM are an error,
+    // so all threads and all instances serialize their file locking through this lock
+    private static final Object JVM_LOCK = new Object();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final long owner;
+
+    // slots and subscriptions are only modified under `subscriptionLock`, but read without it
+    private final Map<String, SharedCircuitState> slots = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object subscriptionLock = new Object();
+    private final Queue<CircuitStateEvent> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService executor;
+
+    public static MappedCircuitStateFile open(Path path, int slotCount) throws IOException {
+        return open(path, slotCount, DEFAULT_POLL_INTERVAL_IN_MILLIS);
+    }
+
+    public static MappedCircuitStateFile open(Path path, int slotCount, long pollIntervalInMillis) throws IOException {
+        checkNotNull(path, "Circuit breaker state file path must be set");
+        check(slotCount, slotCount > 0, "Circuit breaker state file slot count must be > 0");
+        check(pollIntervalInMillis, pollIntervalInMillis > 0, "Circuit breaker state file poll interval must be > 0");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            int actualSlotCount;
+            synchronized (JVM_LOCK) {
+                FileLock lock = channel.lock();
+                try {
+                    actualSlotCount = initialize(channel, path, slotCount);
+                } finally {
+                    lock.release();
+                }
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) actualSlotCount * SLOT_SIZE);
+            return new MappedCircuitStateFile(path, channel, buffer, actualSlotCount, pollIntervalInMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // must be called under the file lock, returns the actual number of slots
+    private static int initialize(FileChannel channel, Path path, int slotCount) throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC_OFFSET, MAGIC);
+            header.putInt(FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+            header.putInt(SLOT_COUNT_OFFSET, slotCount);
+            writeFully(channel, header, 0);
+            // extends the file to its full size, the slots are all zeros
+            writeFully(channel, ByteBuffer.allocate(1), HEADER_SIZE + (long) slotCount * SLOT_SIZE - 1);
+            return slotCount;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        if (header.hasRemaining() || header.getLong(MAGIC_OFFSET) != MAGIC
+                || header.getInt(FORMAT_VERSION_OFFSET) != FORMAT_VERSION) {
+            throw new IOException(path + " is not a circuit breaker state file");
+        }
+        int existingSlotCount = header.getInt(SLOT_COUNT_OFFSET);
+        if (existingSlotCount <= 0 || channel.size() < HEADER_SIZE + (long) existingSlotCount * SLOT_SIZE) {
+            throw new IOException(path + " is a corrupted circuit breaker state file");
+        }
+        return existingSlotCount;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private MappedCircuitStateFile(Path path, FileChannel channel, MappedByteBuffer buffer, int slotCount,
+                                   long pollIntervalInMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        // identifies this instance as the author of slot updates, 0 means "nobody"
+        long owner;
+        do {
+            owner = ThreadLocalRandom.current().nextLong();
+        } while (owner == 0);
+        this.owner = owner;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oaken-ocean-circuit-state-file");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, pollIntervalInMillis, pollIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the transition to be written by the background thread. This is lock-free, the invocation path
+     * never touches the file.
+     */
+    @Override
+    public void publish(CircuitStateEvent event) {
+        pending.add(event);
+    }
+
+    /**
+     * Claims the slot for given {@code name}, if it isn't claimed yet, and if another process has published
+     * a transition to that slot, calls the {@code listener} immediately.
+     *
+     * @throws IllegalArgumentException if the name is empty or too long
+     * @throws IllegalStateException if all slots are taken or the slot can't be claimed
+     */
+    @Override
+    public void subscribe(String name, Consumer<CircuitStateEvent> listener) {
+        synchronized (subscriptionLock) {
+            SharedCircuitState slot = slots.computeIfAbsent(name, this::slot);
+            Subscription subscription = new Subscription(slot, listener);
+
+            SharedCircuitState.Snapshot snapshot = slot.read();
+            if (snapshot != null) {
+                subscription.seenVersion = snapshot.version;
+                if (snapshot.state != null && snapshot.owner != owner) {
+                    listener.accept(snapshot.toEvent(name));
+                }
+            }
+
+            subscriptions.add(subscription);
+        }
+    }
+
+    /**
+     * Cancels the subscription and when it was the last subscription for given {@code name}, releases the slot.
+     */
+    @Override
+    public void unsubscribe(String name, Consumer<CircuitStateEvent> listener) {
+        synchronized (subscriptionLock) {
+            subscriptions.removeIf(subscription -> subscription.slot.name().equals(name)
+                    && subscription.listener == listener);
+            if (subscriptions.stream().noneMatch(subscription -> subscription.slot.name().equals(name))) {
+                SharedCircuitState slot = slots.remove(name);
+                if (slot != null) {
+                    slot.release();
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        writePending();
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.slot.version() == subscription.seenVersion) {
+                continue;
+            }
+
+            SharedCircuitState.Snapshot snapshot = subscription.slot.read();
+            if (snapshot == null) {
+                continue;
+            }
+            subscription.seenVersion = snapshot.version;
+            if (snapshot.state != null && snapshot.owner != owner) {
+                try {
+                    subscription.listener.accept(snapshot.toEvent(subscription.slot.name()));
+                } catch (RuntimeException e) {
+                    // a failing listener must not stop polling
+                }
+            }
+        }
+    }
+
+    private void writePending() {
+        CircuitStateEvent event;
+        while ((event = pending.poll()) != null) {
+            SharedCircuitState slot = slots.get(event.name());
+            if (slot != null) {
+                slot.publish(event);
+            }
+        }
+    }
+
+    /**
+     * Claims the slot for given {@code name}, or a reusable slot if there's no slot for that name yet.
+     *
+     * @throws IllegalArgumentException if the name is empty or too long
+     * @throws IllegalStateException if all slots are taken or the slot can't be claimed
+     */
+    // package-private for tests
+    SharedCircuitState slot(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        check(name, nameBytes.length > 0 && nameBytes.length <= MAX_NAME_LENGTH,
+                "Shared circuit breaker name must have 1 to " + MAX_NAME_LENGTH + " bytes in UTF-8");
+
+        try {
+            long now = System.currentTimeMillis();
+            Integer offset = locked(HEADER_SIZE, (long) slotCount * SLOT_SIZE, false, () -> {
+                int free = -1;
+                int matching = -1;
+                for (int i = 0; i < slotCount && matching < 0; i++) {
+                    int slotOffset = HEADER_SIZE + i * SLOT_SIZE;
+                    int nameLength = buffer.getInt(slotOffset + SharedCircuitState.NAME_LENGTH_OFFSET);
+                    if (nameLength != 0 && nameMatches(slotOffset, nameBytes)) {
+                        matching = slotOffset;
+                    } else if (free < 0
+                            && (nameLength == 0 || SharedCircuitState.isReusable(buffer, slotOffset, now))) {
+                        free = slotOffset;
+                    }
+                }
+                if (matching < 0 && free >= 0) {
+                    matching = free;
+                    for (int i = 0; i < SLOT_SIZE; i++) {
+                        buffer.put(matching + i, (byte) 0);
+                    }
+                    for (int i = 0; i < nameBytes.length; i++) {
+                        buffer.put(matching + SharedCircuitState.NAME_OFFSET + i, nameBytes[i]);
+                    }
+                    buffer.putInt(matching + SharedCircuitState.NAME_LENGTH_OFFSET, nameBytes.length);
+                }
+                if (matching >= 0) {
+                    int references = buffer.getInt(matching + SharedCircuitState.REFERENCES_OFFSET);
+                    buffer.putInt(matching + SharedCircuitState.REFERENCES_OFFSET, references + 1);
+                }
+                return matching;
+            });
+            if (offset < 0) {
+                throw new IllegalStateException("No free slot for " + name + " in " + path);
+            }
+            return new SharedCircuitState(this, offset, name);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't claim a slot for " + name + " in " + path, e);
+        }
+    }
+
+    private boolean nameMatches(int slotOffset, byte[] nameBytes) {
+        if (buffer.getInt(slotOffset + SharedCircuitState.NAME_LENGTH_OFFSET) != nameBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (buffer.get(slotOffset + SharedCircuitState.NAME_OFFSET + i) != nameBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    long owner() {
+        return owner;
+    }
+
+    <T> T locked(long position, long size, boolean shared, LockedAction<T> action) throws IOException {
+        synchronized (JVM_LOCK) {
+            FileLock lock = channel.lock(position, size, shared);
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Stops polling, writes pending transitions, releases all claimed slots and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdown(); // cancels polling
+        try {
+            if (executor.awaitTermination(CLOSE_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+                writePending();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                synchronized (subscriptionLock) {
+                    subscriptions.clear();
+                    slots.values().forEach(SharedCircuitState::release);
+                    slots.clear();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static final class Subscription {
+        final SharedCircuitState slot;
+        final Consumer<CircuitStateEvent> listener;
+        long seenVersion; // only accessed from the background thread after the subscription is published
+
+        Subscription(SharedCircuitState slot, Consumer<CircuitStateEvent> listener) {
+            this.slot = slot;
+            this.listener = listener;
+        }
+    }
+
+    @FunctionalInterface
+    interface LockedAction<T> {
+        T run() throws IOException;
+    }
+}
@@ -24,6 +24,22 @@ final class NaiveRollingWindow implements RollingWindow {
         return failureThresholdReached();
     }
 
+    @Override
+    public synchronized double failureRatio() {
+        int invocations = Math.min(counter, failures.length);
+        if (invocations == 0) {
+            return 0.0;
+        }
+
+        int failures = 0;
+        for (boolean failure : this.failures) {
+            if (failure) {
+                failures++;
+            }
+        }
+        return (double) failures / invocations;
+    }
+
     private int nextIndex() {
         counter++;
 
@@ -0,0 +1,53 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.retry.Jitter;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Computes how long the circuit breaker stays open. When the circuit breaker opens from CLOSED,
+ * the configured delay is used. Each time a trial invocation in HALF_OPEN fails and the circuit breaker
+ * opens again, the delay is multiplied by {@code factor}, up to {@code maxDelayInMillis}.
+ * A {@link Jitter} is added to each computed delay, so that multiple circuit breakers guarding the same
+ * dependency don't probe it at the same time. The delay is reset when the circuit breaker closes.
+ */
+public final class OpenDelayBackoff {
+    /**
+     * The delay is always the same, no jitter is added.
+     */
+    public static final OpenDelayBackoff NONE = new OpenDelayBackoff(1.0, Long.MAX_VALUE, Jitter.ZERO);
+
+    private final double factor;
+    private final long maxDelayInMillis;
+    private final Jitter jitter;
+
+    public OpenDelayBackoff(double factor, long maxDelayInMillis, Jitter jitter) {
+        this.factor = check(factor, factor >= 1.0, "Open delay backoff factor must be >= 1");
+        this.maxDelayInMillis = check(maxDelayInMillis, maxDelayInMillis >= 0, "Open delay backoff max delay must be >= 0");
+        this.jitter = checkNotNull(jitter, "Open delay backoff jitter must be set");
+    }
+
+    /**
+     * Returns the delay after {@code reopenings} consecutive failed trials, starting from {@code delayInMillis}.
+     * The result is never negative.
+     */
+    long delay(long delayInMillis, int reopenings) {
+        double delay = delayInMillis * Math.pow(factor, reopenings);
+        // also guards against overflow, the cast saturates to Long.MAX_VALUE for huge values
+        long result = (long) Math.min(delay, (double) Math.max(maxDelayInMillis, delayInMillis));
+        long jitterValue = jitter.generate();
+        if (jitterValue > 0 && result > Long.MAX_VALUE - jitterValue) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(result + jitterValue, 0);
+    }
+
+    /**
+     * Returns the longest delay, not counting the jitter, that {@link #delay(long, int) delay} may compute
+     * when starting from {@code delayInMillis}.
+     */
+    long maxDelay(long delayInMillis) {
+        return factor == 1.0 ? delayInMillis : Math.max(maxDelayInMillis, delayInMillis);
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+
+/**
+ * How a circuit breaker rejects invocations when it is open (or when it is half-open and no more trial invocations
+ * are allowed). Filling in the stack trace of the {@link CircuitBreakerOpenException} is by far the most expensive
+ * part of rejecting an invocation, and the stack trace is rarely useful, because it only points to
+ * the circuit breaker itself.
+ */
+public enum RejectionMode {
+    /**
+     * A new {@link CircuitBreakerOpenException} with a full stack trace is thrown for each rejected invocation.
+     */
+    STACK_TRACE,
+
+    /**
+     * A new {@link CircuitBreakerOpenException} without a stack trace is thrown for each rejected invocation.
+     */
+    STACKLESS,
+
+    /**
+     * A single preallocated {@link CircuitBreakerOpenException} without a stack trace is thrown for all rejected
+     * invocations. Its cause can't be changed, but note that callers can still add suppressed exceptions to it,
+     * which would then be visible to all other callers.
+     */
+    SHARED
+}
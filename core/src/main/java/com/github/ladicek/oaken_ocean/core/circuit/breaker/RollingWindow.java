@@ -1,5 +1,10 @@
 package com.github.ladicek.oaken_ocean.core.circuit.breaker;
 
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
 public interface RollingWindow {
     /**
      * Records a successful invocation and returns whether the failure threshold has been reached.
@@ -11,7 +16,52 @@ public interface RollingWindow {
      */
     boolean recordFailure();
 
+    /**
+     * Returns the ratio of failures among the invocations currently present in the window, or {@code 0}
+     * if the window is empty. This is used for monitoring and may be approximate. The default implementation
+     * returns {@code NaN}, which means that the ratio is not known.
+     */
+    default double failureRatio() {
+        return Double.NaN;
+    }
+
     static RollingWindow create(int size, int failureThreshold) {
-        return new BitsetRollingWindow(size, failureThreshold);
+        return new LockFreeRollingWindow(size, failureThreshold);
+    }
+
+    /**
+     * Returns a rolling window that is striped across multiple cells to avoid contention on highly
+     * contended circuit breakers, at the cost of only approximating the failure count.
+     * See {@link StripedRollingWindow} for details.
+     */
+    static RollingWindow createStriped(int size, int failureThreshold) {
+        return new StripedRollingWindow(size, failureThreshold);
+    }
+
+    /**
+     * Creates a new rolling window every time the circuit breaker enters the CLOSED state.
+     * Implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    interface Factory {
+        RollingWindow create(int size, int failureThreshold);
+
+        Factory DEFAULT = RollingWindow::create;
+        Factory STRIPED = RollingWindow::createStriped;
+
+        /**
+         * Returns a factory of time-based rolling windows that cover the last {@code bucketCount * bucketDurationInMillis}
+         * instead of the last {@code size} invocations. The {@code size} then becomes the minimum number of invocations
+         * in the window before the failure threshold can be reached, and {@code failureThreshold / size}
+         * is the failure ratio. See {@link TimeBasedRollingWindow} for details.
+         */
+        static Factory timeBased(int bucketCount, long bucketDurationInMillis, Stopwatch stopwatch) {
+            check(bucketCount, bucketCount > 0, "Rolling window bucket count must be > 0");
+            check(bucketDurationInMillis, bucketDurationInMillis > 0, "Rolling window bucket duration must be > 0");
+            checkNotNull(stopwatch, "Stopwatch must be set");
+
+            return (size, failureThreshold) -> new TimeBasedRollingWindow(size, failureThreshold,
+                    bucketCount, bucketDurationInMillis, stopwatch.start());
+        }
     }
 }
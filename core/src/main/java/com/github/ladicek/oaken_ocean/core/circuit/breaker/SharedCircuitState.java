@@ -0,0 +1,191 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * One slot of a {@link MappedCircuitStateFile}. The slot layout is:
+ * <ul>
+ * <li>0: version ({@code long}), incremented on each update</li>
+ * <li>8: state ({@code int}), 0 if nothing was published yet</li>
+ * <li>12: length of the name in bytes ({@code int}), 0 if the slot is free</li>
+ * <li>16: owner ({@code long}), identifies the file instance that published the state</li>
+ * <li>24: since when is the state in effect ({@code long}), in milliseconds since the epoch</li>
+ * <li>32: how long the OPEN or HALF_OPEN state lasts ({@code long}), in milliseconds</li>
+ * <li>40: failure ratio at the time of publishing ({@code double})</li>
+ * <li>48: number of file instances that have the slot claimed ({@code int})</li>
+ * <li>56: name, UTF-8 encoded</li>
+ * </ul>
+ * Methods that read or write the whole slot lock it. Methods that would throw {@link IOException}
+ * return {@code null} instead, so that a failure to share the state never fails an invocation.
+ */
+final class SharedCircuitState {
+    static final int VERSION_OFFSET = 0;
+    static final int STATE_OFFSET = 8;
+    static final int NAME_LENGTH_OFFSET = 12;
+    static final int OWNER_OFFSET = 16;
+    static final int SINCE_OFFSET = 24;
+    static final int DURATION_OFFSET = 32;
+    static final int FAILURE_RATIO_OFFSET = 40;
+    static final int REFERENCES_OFFSET = 48;
+    static final int NAME_OFFSET = 56;
+
+    private static final int STATE_NONE = 0;
+    private static final int STATE_CLOSED = 1;
+    private static final int STATE_OPEN = 2;
+    private static final int STATE_HALF_OPEN = 3;
+
+    private final MappedCircuitStateFile file;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final String name;
+
+    SharedCircuitState(MappedCircuitStateFile file, int offset, String name) {
+        this.file = file;
+        this.buffer = file.buffer();
+        this.offset = offset;
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    long owner() {
+        return file.owner();
+    }
+
+    /**
+     * Returns the current version of the slot without locking. This is cheap enough to be polled frequently;
+     * the rest of the slot should only be read when the version changes.
+     */
+    long version() {
+        return buffer.getLong(offset + VERSION_OFFSET);
+    }
+
+    Snapshot read() {
+        try {
+            return file.locked(offset, MappedCircuitStateFile.SLOT_SIZE, true, this::snapshot);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    Snapshot publish(CircuitStateEvent event) {
+        try {
+            return file.locked(offset, MappedCircuitStateFile.SLOT_SIZE, false, () -> {
+                write(event.state(), event.sinceMillis(), event.durationInMillis(), event.failureRatio());
+                return snapshot();
+            });
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gives up the claim of this file instance on the slot. The slot becomes reusable for another name when
+     * no instance has it claimed and its state is no longer in effect, see {@link #isReusable(ByteBuffer, int, long)}.
+     */
+    void release() {
+        try {
+            file.locked(offset, MappedCircuitStateFile.SLOT_SIZE, false, () -> {
+                int references = buffer.getInt(offset + REFERENCES_OFFSET);
+                buffer.putInt(offset + REFERENCES_OFFSET, Math.max(references - 1, 0));
+                return null;
+            });
+        } catch (IOException e) {
+            // the slot stays claimed
+        }
+    }
+
+    /**
+     * Returns whether the slot at given {@code offset} may be reused for another name at time {@code now}:
+     * it is not claimed by any file instance and it doesn't hold an OPEN or HALF_OPEN state that is still
+     * in effect, which a restarted process should learn about. Must be called under the slot lock.
+     */
+    static boolean isReusable(ByteBuffer buffer, int offset, long now) {
+        if (buffer.getInt(offset + REFERENCES_OFFSET) > 0) {
+            return false;
+        }
+        int state = buffer.getInt(offset + STATE_OFFSET);
+        if (state != STATE_OPEN && state != STATE_HALF_OPEN) {
+            return true;
+        }
+        long since = buffer.getLong(offset + SINCE_OFFSET);
+        long end = since + Math.max(buffer.getLong(offset + DURATION_OFFSET), 0);
+        return end >= since && end <= now; // overflow means the state lasts for a very long time
+    }
+
+    // must be called under the slot lock
+    private void write(CircuitBreakerState state, long since, long durationInMillis, double failureRatio) {
+        buffer.putInt(offset + STATE_OFFSET, encode(state));
+        buffer.putLong(offset + OWNER_OFFSET, owner());
+        buffer.putLong(offset + SINCE_OFFSET, since);
+        buffer.putLong(offset + DURATION_OFFSET, durationInMillis);
+        buffer.putLong(offset + FAILURE_RATIO_OFFSET, Double.doubleToRawLongBits(failureRatio));
+        // the version is written last, so that `version()` doesn't observe it before the rest of the slot
+        // is written, at least in this process; other processes only read the slot under the lock
+        buffer.putLong(offset + VERSION_OFFSET, buffer.getLong(offset + VERSION_OFFSET) + 1);
+    }
+
+    // must be called under the slot lock
+    private Snapshot snapshot() {
+        return new Snapshot(
+                buffer.getLong(offset + VERSION_OFFSET),
+                decode(buffer.getInt(offset + STATE_OFFSET)),
+                buffer.getLong(offset + OWNER_OFFSET),
+                buffer.getLong(offset + SINCE_OFFSET),
+                buffer.getLong(offset + DURATION_OFFSET),
+                Double.longBitsToDouble(buffer.getLong(offset + FAILURE_RATIO_OFFSET)));
+    }
+
+    private static int encode(CircuitBreakerState state) {
+        switch (state) {
+            case CLOSED:
+                return STATE_CLOSED;
+            case OPEN:
+                return STATE_OPEN;
+            case HALF_OPEN:
+                return STATE_HALF_OPEN;
+            default:
+                throw new AssertionError("Invalid circuit breaker state: " + state);
+        }
+    }
+
+    private static CircuitBreakerState decode(int state) {
+        switch (state) {
+            case STATE_CLOSED:
+                return CircuitBreakerState.CLOSED;
+            case STATE_OPEN:
+                return CircuitBreakerState.OPEN;
+            case STATE_HALF_OPEN:
+                return CircuitBreakerState.HALF_OPEN;
+            case STATE_NONE:
+            default: // garbage
+                return null;
+        }
+    }
+
+    static final class Snapshot {
+        final long version;
+        final CircuitBreakerState state; // null if nothing was published yet
+        final long owner;
+        final long sinceMillis;
+        final long durationInMillis;
+        final double failureRatio;
+
+        Snapshot(long version, CircuitBreakerState state, long owner, long sinceMillis, long durationInMillis,
+                 double failureRatio) {
+            this.version = version;
+            this.state = state;
+            this.owner = owner;
+            this.sinceMillis = sinceMillis;
+            this.durationInMillis = durationInMillis;
+            this.failureRatio = failureRatio;
+        }
+
+        CircuitStateEvent toEvent(String name) {
+            return new CircuitStateEvent(name, state, sinceMillis, durationInMillis, failureRatio);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+
+final class StacklessCircuitBreakerOpenException extends CircuitBreakerOpenException {
+    private static final long serialVersionUID = 1L;
+
+    StacklessCircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
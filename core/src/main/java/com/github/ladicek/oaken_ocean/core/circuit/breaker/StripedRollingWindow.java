@@ -0,0 +1,183 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Spreads the counting of invocations across multiple padded cells, similarly to {@code LongAdder}, so that
+ * threads recording into the window don't fight over a single cache line. Each thread is assigned a cell
+ * based on its identity. Cells only hold monotonically increasing numbers of invocations and failures.
+ * <p>
+ * Every {@code stride} invocations recorded into a cell, the recording thread sums up all the cells and decides
+ * whether the failure threshold has been reached; in all other cases, {@code false} is returned. The window is
+ * approximated by blocks of {@code size} invocations: the failures of the current (partial) block are counted
+ * exactly, while the failures of the previous block are assumed to be evenly spread over it and only
+ * the part of it that still belongs to the window is taken into account.
+ * <p>
+ * Compared to exact count-based semantics, the decision is therefore stale by at most {@code cells * stride}
+ * invocations that have been recorded, but not yet aggregated (by default, this is at most {@code size / 4},
+ * unless that is less than the number of cells), and the failure count is off by the difference between
+ * the actual and the uniform distribution of failures in the previous block. The window only reports
+ * the failure threshold to be reached after at least {@code size} invocations have been aggregated.
+ */
+final class StripedRollingWindow implements RollingWindow {
+    private static final int MAX_CELLS = 64;
+
+    private final Cell[] cells;
+    private final int cellMask;
+    private final long strideMask;
+    private final int size;
+    private final int failureThreshold;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0, 0));
+
+    StripedRollingWindow(int size, int failureThreshold) {
+        this(size, failureThreshold, defaultCells());
+    }
+
+    private StripedRollingWindow(int size, int failureThreshold, int cells) {
+        this(size, failureThreshold, cells, Math.max(1, Integer.highestOneBit(size / (cells * 4))));
+    }
+
+    /**
+     * Both {@code cells} and {@code stride} must be powers of 2.
+     */
+    StripedRollingWindow(int size, int failureThreshold, int cells, int stride) {
+        this.cells = new Cell[cells];
+        for (int i = 0; i < cells; i++) {
+            this.cells[i] = new Cell();
+        }
+        this.cellMask = cells - 1;
+        this.strideMask = stride - 1;
+        this.size = size;
+        this.failureThreshold = failureThreshold;
+    }
+
+    private static int defaultCells() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int cells = Integer.highestOneBit(processors);
+        if (cells < processors) {
+            cells <<= 1;
+        }
+        return Math.min(cells, MAX_CELLS);
+    }
+
+    @Override
+    public boolean recordSuccess() {
+        return record(false);
+    }
+
+    @Override
+    public boolean recordFailure() {
+        return record(true);
+    }
+
+    private boolean record(boolean failure) {
+        Cell cell = cells[cellIndex()];
+        if (failure) {
+            Cell.FAILURES.getAndIncrement(cell);
+        }
+        long calls = Cell.CALLS.incrementAndGet(cell);
+
+        if ((calls & strideMask) != 0) {
+            return false;
+        }
+
+        return failureThresholdReached();
+    }
+
+    @Override
+    public double failureRatio() {
+        long totalCalls = 0;
+        long totalFailures = 0;
+        for (Cell cell : cells) {
+            totalCalls += cell.calls;
+            totalFailures += cell.failures;
+        }
+
+        if (totalCalls == 0) {
+            return 0.0;
+        }
+
+        if (totalCalls < size) {
+            return (double) totalFailures / totalCalls;
+        }
+
+        Block block = this.block.get();
+        long callsInBlock = totalCalls - block.startCalls;
+        long failuresInBlock = totalFailures - block.startFailures;
+        if (callsInBlock >= size) {
+            // current block is complete, but wasn't rotated yet
+            return (double) failuresInBlock / callsInBlock;
+        }
+
+        double estimatedFailures = failuresInBlock + (double) block.previousFailures * (size - callsInBlock) / size;
+        return estimatedFailures / size;
+    }
+
+    private int cellIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & cellMask;
+    }
+
+    private boolean failureThresholdReached() {
+        long totalCalls = 0;
+        long totalFailures = 0;
+        for (Cell cell : cells) {
+            totalCalls += cell.calls;
+            totalFailures += cell.failures;
+        }
+
+        if (totalCalls < size) {
+            return false;
+        }
+
+        while (true) {
+            Block block = this.block.get();
+            long callsInBlock = totalCalls - block.startCalls;
+            long failuresInBlock = totalFailures - block.startFailures;
+
+            if (callsInBlock < size) {
+                // failures from the previous block are assumed to be evenly spread
+                long estimatedFailures = failuresInBlock * size + block.previousFailures * (size - callsInBlock);
+                return estimatedFailures >= (long) failureThreshold * size;
+            }
+
+            // current block is complete, it becomes the previous block (normalized to `size` invocations)
+            Block newBlock = new Block(totalCalls, totalFailures, failuresInBlock * size / callsInBlock);
+            if (this.block.compareAndSet(block, newBlock)) {
+                return newBlock.previousFailures >= failureThreshold;
+            }
+        }
+    }
+
+    private static final class Block {
+        final long startCalls;
+        final long startFailures;
+        final long previousFailures;
+
+        Block(long startCalls, long startFailures, long previousFailures) {
+            this.startCalls = startCalls;
+            this.startFailures = startFailures;
+            this.previousFailures = previousFailures;
+        }
+    }
+
+    // padding is split across a class hierarchy, because the JVM doesn't reorder fields across classes
+
+    abstract static class CellPaddingBefore {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class CellFields extends CellPaddingBefore {
+        volatile long calls;
+        volatile long failures;
+    }
+
+    static final class Cell extends CellFields {
+        static final AtomicLongFieldUpdater<CellFields> CALLS = AtomicLongFieldUpdater.newUpdater(CellFields.class, "calls");
+        static final AtomicLongFieldUpdater<CellFields> FAILURES = AtomicLongFieldUpdater.newUpdater(CellFields.class, "failures");
+
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+}
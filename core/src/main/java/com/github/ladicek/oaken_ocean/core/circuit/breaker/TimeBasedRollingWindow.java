@@ -0,0 +1,136 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.RunningStopwatch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts invocations and failures in a ring of {@code bucketCount} buckets, each covering
+ * {@code bucketDurationInMillis} as measured by a {@link RunningStopwatch}. The window covers
+ * the last {@code bucketCount * bucketDurationInMillis}, no matter how many invocations happen in that time.
+ * <p>
+ * The {@code size} of the window is the minimum number of invocations in the window before the failure threshold
+ * can be reached, and the failure threshold is reached when the ratio of failures to all invocations in the window
+ * is at least {@code failureThreshold / size}.
+ * <p>
+ * Each bucket is a single {@code long} that packs the bucket epoch (22 bits), number of invocations (21 bits)
+ * and number of failures (21 bits), updated with a CAS. A bucket that belongs to an older epoch is reset
+ * by the first invocation that lands in it. Recording an invocation never allocates and checking the failure
+ * threshold only sums up the fixed number of buckets. When a bucket is full, further invocations
+ * in the same bucket aren't counted at all, which keeps the failure ratio representative.
+ */
+final class TimeBasedRollingWindow implements RollingWindow {
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (64 - 2 * COUNT_BITS)) - 1;
+
+    private static final int FAILURES_SHIFT = 0;
+    private static final int CALLS_SHIFT = COUNT_BITS;
+    private static final int EPOCH_SHIFT = 2 * COUNT_BITS;
+
+    private final AtomicLongArray buckets;
+    private final long bucketDurationInMillis;
+    private final int size;
+    private final int failureThreshold;
+    private final RunningStopwatch runningStopwatch;
+
+    TimeBasedRollingWindow(int size, int failureThreshold, int bucketCount, long bucketDurationInMillis,
+                           RunningStopwatch runningStopwatch) {
+        this.buckets = new AtomicLongArray(bucketCount);
+        this.bucketDurationInMillis = bucketDurationInMillis;
+        this.size = size;
+        this.failureThreshold = failureThreshold;
+        this.runningStopwatch = runningStopwatch;
+    }
+
+    @Override
+    public boolean recordSuccess() {
+        return record(false);
+    }
+
+    @Override
+    public boolean recordFailure() {
+        return record(true);
+    }
+
+    private boolean record(boolean failure) {
+        long epoch = runningStopwatch.elapsedTimeInMillis() / bucketDurationInMillis;
+        int index = (int) (epoch % buckets.length());
+        long currentEpoch = epoch & EPOCH_MASK;
+
+        while (true) {
+            long bucket = buckets.get(index);
+            long bucketEpoch = (bucket >>> EPOCH_SHIFT) & EPOCH_MASK;
+
+            long newBucket;
+            if (bucketEpoch == currentEpoch) {
+                if (((bucket >>> CALLS_SHIFT) & COUNT_MASK) == COUNT_MASK) {
+                    break; // bucket is full
+                }
+                newBucket = bucket + (1L << CALLS_SHIFT) + (failure ? 1L << FAILURES_SHIFT : 0);
+            } else if (age(bucketEpoch, currentEpoch) <= EPOCH_MASK / 2) {
+                newBucket = (currentEpoch << EPOCH_SHIFT) | (1L << CALLS_SHIFT) | (failure ? 1L << FAILURES_SHIFT : 0);
+            } else {
+                break; // another thread has already moved the bucket to a newer epoch, this invocation is too late
+            }
+
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                break;
+            }
+        }
+
+        return failureThresholdReached(currentEpoch);
+    }
+
+    @Override
+    public double failureRatio() {
+        long currentEpoch = (runningStopwatch.elapsedTimeInMillis() / bucketDurationInMillis) & EPOCH_MASK;
+        long counts = sumBuckets(currentEpoch);
+        long calls = counts >>> 32;
+        long failures = counts & 0xFFFF_FFFFL;
+
+        if (calls == 0) {
+            return 0.0;
+        }
+
+        return (double) failures / calls;
+    }
+
+    private boolean failureThresholdReached(long currentEpoch) {
+        long counts = sumBuckets(currentEpoch);
+        long calls = counts >>> 32;
+        long failures = counts & 0xFFFF_FFFFL;
+
+        if (calls < size) {
+            return false;
+        }
+
+        return failures * size >= failureThreshold * calls;
+    }
+
+    /**
+     * Returns the number of invocations in the upper 32 bits and the number of failures in the lower 32 bits.
+     * These numbers are both guaranteed to fit, as they are sums of at most {@code bucketCount} 21-bit numbers.
+     */
+    private long sumBuckets(long currentEpoch) {
+        long calls = 0;
+        long failures = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            long bucket = buckets.get(i);
+            long bucketEpoch = (bucket >>> EPOCH_SHIFT) & EPOCH_MASK;
+            if (age(bucketEpoch, currentEpoch) < buckets.length()) {
+                calls += (bucket >>> CALLS_SHIFT) & COUNT_MASK;
+                failures += (bucket >>> FAILURES_SHIFT) & COUNT_MASK;
+            }
+        }
+        return (calls << 32) | failures;
+    }
+
+    /**
+     * Returns how many epochs is {@code olderEpoch} older than {@code newerEpoch}.
+     * If {@code olderEpoch} is in fact newer, the result is a huge number.
+     */
+    private static long age(long olderEpoch, long newerEpoch) {
+        return (newerEpoch - olderEpoch) & EPOCH_MASK;
+    }
+}
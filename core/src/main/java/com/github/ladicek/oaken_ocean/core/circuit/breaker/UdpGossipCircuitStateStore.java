@@ -0,0 +1,266 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Shares circuit breaker transitions among nodes by gossiping over UDP. Each transition is sent to {@code fanout}
+ * randomly selected peers, and each node that learns about a transition it hasn't seen yet forwards it
+ * to {@code fanout} randomly selected peers, except the one it received the transition from. Transitions
+ * are ordered by their time (and by their origin, if they happened in the same millisecond), so that all nodes
+ * converge on the latest transition, no matter the order in which they receive the messages.
+ * <p>
+ * Messages are sent from a background thread, and received and delivered to subscribers on another background thread.
+ * UDP doesn't guarantee delivery; if a message is lost, the nodes that didn't get it simply keep acting
+ * on their own timers. Peers must be added explicitly. Nodes can be bound to the loopback interface,
+ * so that multiple nodes can run in a single JVM, e.g. in tests.
+ * <p>
+ * The time of transitions is wall-clock time, so the clocks of the nodes should be synchronized.
+ */
+public final class UdpGossipCircuitStateStore implements CircuitStateStore, Closeable {
+    static final int MAX_NAME_LENGTH = 1024;
+
+    private static final int MAGIC = 0x4F4F_4353; // "OOCS"
+    private static final int MAX_MESSAGE_SIZE = 4 + 8 + 8 + 1 + 8 + 8 + 8 + 2 + MAX_NAME_LENGTH;
+    private static final CircuitBreakerState[] STATES = CircuitBreakerState.values();
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress localAddress;
+    private final int fanout;
+    private final long nodeId;
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    private final CopyOnWriteArrayList<InetSocketAddress> peers = new CopyOnWriteArrayList<>();
+    private final Map<String, Gossip> latest = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<CircuitStateEvent>>> listeners = new ConcurrentHashMap<>();
+
+    private final ExecutorService sender;
+    private final Thread receiver;
+
+    public UdpGossipCircuitStateStore(InetSocketAddress bindAddress, int fanout) throws IOException {
+        checkNotNull(bindAddress, "Bind address must be set");
+        this.fanout = check(fanout, fanout > 0, "Gossip fanout must be > 0");
+
+        long nodeId;
+        do {
+            nodeId = ThreadLocalRandom.current().nextLong();
+        } while (nodeId == 0);
+        this.nodeId = nodeId;
+
+        this.channel = DatagramChannel.open();
+        try {
+            channel.bind(bindAddress);
+            this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oaken-ocean-gossip-sender-" + localAddress.getPort());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.receiver = new Thread(this::receive, "oaken-ocean-gossip-receiver-" + localAddress.getPort());
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    public InetSocketAddress localAddress() {
+        return localAddress;
+    }
+
+    public void addPeer(InetSocketAddress peer) {
+        checkNotNull(peer, "Peer address must be set");
+        if (!peer.equals(localAddress)) {
+            peers.addIfAbsent(peer);
+        }
+    }
+
+    @Override
+    public void publish(CircuitStateEvent event) {
+        Gossip gossip = new Gossip(nodeId, sequence.incrementAndGet(), event);
+        if (!remember(gossip)) {
+            return;
+        }
+
+        try {
+            sender.execute(() -> send(encode(gossip), null));
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public void subscribe(String name, Consumer<CircuitStateEvent> listener) {
+        check(name, name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_LENGTH,
+                "Gossiped circuit breaker name must have at most " + MAX_NAME_LENGTH + " bytes in UTF-8");
+        listeners.compute(name, (ignored, list) -> {
+            List<Consumer<CircuitStateEvent>> result = list != null ? list : new CopyOnWriteArrayList<>();
+            result.add(listener);
+            return result;
+        });
+
+        Gossip gossip = latest.get(name);
+        if (gossip != null && gossip.origin != nodeId) {
+            listener.accept(gossip.event);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String name, Consumer<CircuitStateEvent> listener) {
+        listeners.computeIfPresent(name, (ignored, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        sender.shutdownNow();
+        channel.close(); // the receiver thread stops
+    }
+
+    // returns whether the gossip is newer than anything known about given circuit breaker
+    private boolean remember(Gossip gossip) {
+        boolean[] newer = new boolean[1];
+        latest.compute(gossip.event.name(), (ignored, existing) -> {
+            if (existing == null || gossip.isNewerThan(existing)) {
+                newer[0] = true;
+                return gossip;
+            }
+            return existing;
+        });
+        return newer[0];
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+        while (channel.isOpen()) {
+            SocketAddress from;
+            try {
+                buffer.clear();
+                from = channel.receive(buffer);
+            } catch (IOException e) {
+                continue; // if the channel was closed, the loop ends
+            }
+            buffer.flip();
+
+            Gossip gossip = decode(buffer);
+            if (gossip == null || gossip.origin == nodeId || !remember(gossip)) {
+                continue;
+            }
+
+            List<Consumer<CircuitStateEvent>> listeners = this.listeners.get(gossip.event.name());
+            if (listeners != null) {
+                for (Consumer<CircuitStateEvent> listener : listeners) {
+                    try {
+                        listener.accept(gossip.event);
+                    } catch (RuntimeException e) {
+                        // a failing listener must not stop receiving
+                    }
+                }
+            }
+
+            buffer.rewind();
+            send(buffer, from);
+        }
+    }
+
+    private void send(ByteBuffer message, SocketAddress exclude) {
+        List<InetSocketAddress> targets = new ArrayList<>(peers);
+        targets.remove(exclude);
+        Collections.shuffle(targets, ThreadLocalRandom.current());
+        for (int i = 0; i < fanout && i < targets.size(); i++) {
+            try {
+                channel.send(message.duplicate(), targets.get(i));
+            } catch (IOException e) {
+                // best effort, the peer may be down
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Gossip gossip) {
+        byte[] name = gossip.event.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putLong(gossip.origin);
+        buffer.putLong(gossip.sequence);
+        buffer.put((byte) gossip.event.state().ordinal());
+        buffer.putLong(gossip.event.sinceMillis());
+        buffer.putLong(gossip.event.durationInMillis());
+        buffer.putDouble(gossip.event.failureRatio());
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.flip();
+        return buffer;
+    }
+
+    // returns null if the message is malformed
+    private static Gossip decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            long origin = buffer.getLong();
+            long sequence = buffer.getLong();
+            int state = buffer.get();
+            long sinceMillis = buffer.getLong();
+            long durationInMillis = buffer.getLong();
+            double failureRatio = buffer.getDouble();
+            int nameLength = buffer.getShort();
+            if (state < 0 || state >= STATES.length || nameLength < 0 || nameLength > MAX_NAME_LENGTH) {
+                return null;
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            return new Gossip(origin, sequence, new CircuitStateEvent(new String(name, StandardCharsets.UTF_8),
+                    STATES[state], sinceMillis, durationInMillis, failureRatio));
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static final class Gossip {
+        final long origin;
+        final long sequence;
+        final CircuitStateEvent event;
+
+        Gossip(long origin, long sequence, CircuitStateEvent event) {
+            this.origin = origin;
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        boolean isNewerThan(Gossip other) {
+            if (event.sinceMillis() != other.event.sinceMillis()) {
+                return event.sinceMillis() > other.event.sinceMillis();
+            }
+            if (origin != other.origin) {
+                return origin > other.origin;
+            }
+            return sequence > other.sequence;
+        }
+    }
+}
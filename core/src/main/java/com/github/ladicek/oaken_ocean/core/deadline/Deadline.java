@@ -0,0 +1,124 @@
+package com.github.ladicek.oaken_ocean.core.deadline;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which the current invocation must finish. The deadline is associated with the current
+ * thread, so it flows through all nested strategies that execute synchronously: {@code Timeout} and {@code Retry}
+ * {@linkplain #enter(long, Stopwatch) enter} a deadline for their own duration, unless an outer strategy has
+ * already entered a sooner one, and all strategies consult the {@linkplain #current() current} deadline
+ * to clamp their waiting and to skip attempts when no time is left.
+ * <p>
+ * By default, an attempt is only skipped once the deadline has passed, so an attempt may still start with
+ * a tiny fraction of a millisecond left. A strategy that enters a deadline may also set a minimum remaining time
+ * to start an attempt, see {@link #enter(long, long, Stopwatch)}.
+ * <p>
+ * Strategies that run the guarded action on other threads don't propagate the deadline.
+ */
+public final class Deadline {
+    /**
+     * There's no deadline.
+     */
+    public static final Deadline NONE = new Deadline(null, 0, Long.MAX_VALUE, 0);
+
+    private static final ThreadLocal<Deadline> CURRENT = ThreadLocal.withInitial(() -> NONE);
+
+    private final Stopwatch stopwatch;
+    private final long start;
+    private final long budgetInNanos;
+    private final long minAttemptBudgetInNanos;
+
+    private Deadline(Stopwatch stopwatch, long start, long budgetInNanos, long minAttemptBudgetInNanos) {
+        this.stopwatch = stopwatch;
+        this.start = start;
+        this.budgetInNanos = budgetInNanos;
+        this.minAttemptBudgetInNanos = minAttemptBudgetInNanos;
+    }
+
+    /**
+     * Returns the deadline of the current thread, or {@link #NONE}.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the deadline {@code budgetInNanos} from now current for this thread, unless the current deadline
+     * is sooner. Returns the previous deadline, which must be {@linkplain #restore(Deadline) restored}
+     * in a {@code finally} block. The {@code stopwatch} must implement {@link Stopwatch#nowInNanos()},
+     * see {@link Stopwatch#withNanos(Stopwatch)}.
+     */
+    public static Deadline enter(long budgetInNanos, Stopwatch stopwatch) {
+        return enter(budgetInNanos, 0, stopwatch);
+    }
+
+    /**
+     * Same as {@link #enter(long, Stopwatch)}, but attempts are also skipped when the remaining time
+     * is {@code minAttemptBudgetInNanos} or less, because they couldn't finish in time anyway. The higher
+     * of this and the current deadline's minimum applies, even if the current deadline is sooner.
+     */
+    public static Deadline enter(long budgetInNanos, long minAttemptBudgetInNanos, Stopwatch stopwatch) {
+        Deadline previous = CURRENT.get();
+        long minAttemptBudget = Math.max(minAttemptBudgetInNanos, previous.minAttemptBudgetInNanos);
+        if (budgetInNanos < previous.remainingInNanos()) {
+            CURRENT.set(new Deadline(stopwatch, stopwatch.nowInNanos(), budgetInNanos, minAttemptBudget));
+        } else if (previous != NONE && minAttemptBudget > previous.minAttemptBudgetInNanos) {
+            CURRENT.set(new Deadline(previous.stopwatch, previous.start, previous.budgetInNanos, minAttemptBudget));
+        }
+        return previous;
+    }
+
+    public static void restore(Deadline previous) {
+        CURRENT.set(previous);
+    }
+
+    /**
+     * Returns the remaining time, which is negative if the deadline has passed, or {@link Long#MAX_VALUE}
+     * if there's no deadline.
+     */
+    public long remainingInNanos() {
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        return budgetInNanos - stopwatch.elapsedInNanos(start);
+    }
+
+    public long remainingInMillis() {
+        long remaining = remainingInNanos();
+        return remaining == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(remaining);
+    }
+
+    public boolean isExpired() {
+        return remainingInNanos() <= 0;
+    }
+
+    /**
+     * Returns whether there's enough time left to start an attempt, that is, whether the remaining time
+     * is longer than the minimum given when {@linkplain #enter(long, long, Stopwatch) entering} the deadline.
+     * Without a minimum, this is the same as {@code !isExpired()}.
+     */
+    public boolean allowsAttempt() {
+        return remainingInNanos() > minAttemptBudgetInNanos;
+    }
+
+    /**
+     * Returns {@code delayInMillis} clamped to the remaining time, never negative.
+     */
+    public long clamp(long delayInMillis) {
+        return Math.max(Math.min(delayInMillis, remainingInMillis()), 0);
+    }
+
+    /**
+     * Throws {@link TimeoutException} if the deadline has passed or there isn't enough time left
+     * to start an attempt (see {@link #allowsAttempt()}), so that an attempt that can't finish in time
+     * isn't even started.
+     */
+    public void checkNotExpired(String description) {
+        if (!allowsAttempt()) {
+            throw new TimeoutException(description + " skipped, deadline exceeded");
+        }
+    }
+}
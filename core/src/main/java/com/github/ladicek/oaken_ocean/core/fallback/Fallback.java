@@ -1,28 +1,52 @@
 package com.github.ladicek.oaken_ocean.core.fallback;
 
+import com.github.ladicek.oaken_ocean.core.deadline.Deadline;
+import com.github.ladicek.oaken_ocean.core.util.ExceptionClassifier;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+
+import java.util.Collections;
 import java.util.concurrent.Callable;
 
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
 public class Fallback<V> implements Callable<V> {
+    private static final SetOfThrowables ALL = SetOfThrowables.create(Collections.singletonList(Throwable.class));
+
     private final Callable<V> delegate;
     private final String description;
 
     private final Callable<V> fallback;
+    private final ExceptionClassifier applyOn; // `skipOn` takes precedence
 
     public Fallback(Callable<V> delegate, String description, Callable<V> fallback) {
+        this(delegate, description, fallback, ALL, SetOfThrowables.EMPTY);
+    }
+
+    public Fallback(Callable<V> delegate, String description, Callable<V> fallback, SetOfThrowables applyOn,
+                    SetOfThrowables skipOn) {
         this.delegate = delegate;
         this.description = description;
         this.fallback = fallback;
+        this.applyOn = new ExceptionClassifier(checkNotNull(applyOn, "Set of apply-on throwables must be set"),
+                checkNotNull(skipOn, "Set of skip-on throwables must be set"));
     }
 
     @Override
     public V call() throws Exception {
-        try {
-            return delegate.call();
-        } catch (InterruptedException e) {
-            throw e;
-        } catch (Exception e) {
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
+        // if there's no time left, go straight to the fallback, no matter what `applyOn` and `skipOn` are
+        if (Deadline.current().allowsAttempt()) {
+            try {
+                return delegate.call();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                if (!applyOn.handles(e)) {
+                    throw e;
+                }
             }
         }
 
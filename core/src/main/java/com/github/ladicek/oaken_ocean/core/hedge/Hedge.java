@@ -0,0 +1,113 @@
+package com.github.ladicek.oaken_ocean.core.hedge;
+
+import com.github.ladicek.oaken_ocean.core.retry.RetryBudget;
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Reduces tail latency by starting a duplicate attempt of the action when the first attempt doesn't complete
+ * within the {@link HedgeDelay}. The first successful result wins and the other attempt is cancelled
+ * (with interruption). If both attempts fail, the failure of the attempt that completed last is rethrown.
+ * The action must be idempotent.
+ * <p>
+ * Both attempts run on the {@code executor}, the calling thread only waits for them. The number of duplicate
+ * attempts is limited by the {@code hedgeBudget}; use {@link RetryBudget#UNLIMITED} to always hedge.
+ * Sharing the budget with {@link com.github.ladicek.oaken_ocean.core.retry.Retry Retry} caps the total
+ * amplification of both strategies. If the executor rejects the duplicate attempt, the action isn't hedged
+ * and the budget token is returned.
+ * <p>
+ * Only the latency of the first attempt is {@linkplain HedgeDelay#recordLatency(long) recorded}, also when
+ * the duplicate attempt wins (then it's the time until the first attempt was cancelled). Otherwise, slow first
+ * attempts would never be recorded and the hedge delay would keep getting shorter.
+ */
+public class Hedge<V> implements Callable<V> {
+    private final Callable<V> delegate;
+    private final String description;
+
+    private final HedgeDelay hedgeDelay;
+    private final RetryBudget hedgeBudget;
+    private final Executor executor;
+    private final Stopwatch stopwatch;
+
+    public Hedge(Callable<V> delegate, String description, HedgeDelay hedgeDelay, RetryBudget hedgeBudget,
+                 Executor executor, Stopwatch stopwatch) {
+        this.delegate = checkNotNull(delegate, "Hedge action must be set");
+        this.description = checkNotNull(description, "Hedge action description must be set");
+        this.hedgeDelay = checkNotNull(hedgeDelay, "Hedge delay must be set");
+        this.hedgeBudget = checkNotNull(hedgeBudget, "Hedge budget must be set");
+        this.executor = checkNotNull(executor, "Executor must be set");
+        this.stopwatch = Stopwatch.withNanos(checkNotNull(stopwatch, "Stopwatch must be set"));
+    }
+
+    @Override
+    public V call() throws Exception {
+        hedgeBudget.recordRequest();
+
+        CompletionService<V> completionService = new ExecutorCompletionService<>(executor);
+        long start = stopwatch.nowInNanos();
+        Future<V> first = completionService.submit(delegate);
+        Future<V> second = null;
+        try {
+            Future<V> completed = completionService.poll(hedgeDelay.delayInMillis(), TimeUnit.MILLISECONDS);
+            if (completed == null && hedgeBudget.tryAcquireRetry()) {
+                try {
+                    second = completionService.submit(delegate);
+                } catch (RejectedExecutionException e) {
+                    // hedging is optional, the first attempt is still running fine
+                    hedgeBudget.releaseRetry();
+                }
+            }
+
+            int pending = second == null ? 1 : 2;
+            while (true) {
+                if (completed == null) {
+                    completed = completionService.take();
+                }
+                pending--;
+
+                try {
+                    return completed.get();
+                } catch (ExecutionException e) {
+                    if (pending == 0) {
+                        throw rethrow(e.getCause());
+                    }
+                }
+                completed = null;
+            }
+        } finally {
+            // if the first attempt is still running, it took at least this long
+            if (first.cancel(true) || completedNormally(first)) {
+                hedgeDelay.recordLatency(TimeUnit.NANOSECONDS.toMillis(stopwatch.elapsedInNanos(start)));
+            }
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    private static boolean completedNormally(Future<?> future) {
+        try {
+            future.get(); // doesn't block, the future is done
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static Exception rethrow(Throwable e) {
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return (Exception) e; // `Callable.call` only throws exceptions and errors
+    }
+}
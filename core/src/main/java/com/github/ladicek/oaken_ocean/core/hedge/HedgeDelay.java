@@ -0,0 +1,34 @@
+package com.github.ladicek.oaken_ocean.core.hedge;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+
+/**
+ * Determines how long {@link Hedge} waits for the first attempt before starting a duplicate one.
+ * Implementations must be thread-safe.
+ */
+public interface HedgeDelay {
+    long delayInMillis();
+
+    /**
+     * Records the latency of a successful first attempt, or the time until a first attempt that lost
+     * was cancelled. Called concurrently, so this should be cheap.
+     */
+    default void recordLatency(long latencyInMillis) {
+    }
+
+    static HedgeDelay fixed(long delayInMillis) {
+        check(delayInMillis, delayInMillis >= 0, "Hedge delay must be >= 0");
+        return () -> delayInMillis;
+    }
+
+    /**
+     * Returns a delay that is the {@code quantile} (e.g. 0.99 for the 99th percentile) of the latencies
+     * of recent first attempts. Until enough latencies are recorded, {@code initialDelayInMillis} is used.
+     * See {@link PercentileHedgeDelay} for details.
+     */
+    static HedgeDelay percentile(double quantile, long initialDelayInMillis) {
+        check(quantile, quantile > 0.0 && quantile <= 1.0, "Hedge delay quantile must be > 0 and <= 1");
+        check(initialDelayInMillis, initialDelayInMillis >= 0, "Initial hedge delay must be >= 0");
+        return new PercentileHedgeDelay(quantile, initialDelayInMillis);
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.ladicek.oaken_ocean.core.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies are recorded into a histogram with 4 buckets per power of two, so the computed delay is at most
+ * 25 % longer than the exact quantile. Every {@link #RECOMPUTE_INTERVAL} recorded latencies, the delay
+ * is recomputed and all buckets are halved, so that older latencies gradually lose weight. Reading the delay
+ * is just a volatile read.
+ * <p>
+ * Recording and recomputing are not atomic with respect to each other, so the delay is approximate.
+ */
+final class PercentileHedgeDelay implements HedgeDelay {
+    static final int RECOMPUTE_INTERVAL = 1000;
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // latencies < SUB_BUCKETS have their own buckets, then SUB_BUCKETS buckets for each power of two up to 2^62
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final double quantile;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong recorded = new AtomicLong(0);
+
+    private volatile long delayInMillis;
+
+    PercentileHedgeDelay(double quantile, long initialDelayInMillis) {
+        this.quantile = quantile;
+        this.delayInMillis = initialDelayInMillis;
+    }
+
+    @Override
+    public long delayInMillis() {
+        return delayInMillis;
+    }
+
+    @Override
+    public void recordLatency(long latencyInMillis) {
+        counts.incrementAndGet(bucket(Math.max(latencyInMillis, 0)));
+        if (recorded.incrementAndGet() % RECOMPUTE_INTERVAL == 0) {
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return;
+        }
+
+        long target = (long) Math.ceil(quantile * total);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                delayInMillis = upperBound(i);
+                break;
+            }
+        }
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.getAndUpdate(i, count -> count / 2);
+        }
+    }
+
+    static int bucket(long latencyInMillis) {
+        if (latencyInMillis < SUB_BUCKETS) {
+            return (int) latencyInMillis;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(latencyInMillis); // >= SUB_BUCKET_BITS
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (latencyInMillis >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    // the highest latency that falls into given bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long next = (long) (SUB_BUCKETS + subBucket + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1; // the last bucket would overflow
+    }
+}
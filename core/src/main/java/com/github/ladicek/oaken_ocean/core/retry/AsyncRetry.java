@@ -0,0 +1,146 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+import com.github.ladicek.oaken_ocean.core.util.ExceptionClassifier;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Non-blocking variant of {@link Retry} for actions that return a {@link CompletionStage}. Instead of sleeping
+ * between attempts, the next attempt is scheduled on the {@code executor}, so no thread is held while waiting.
+ * That's why only {@link SchedulableDelay}s are accepted. If the next attempt would start
+ * {@code maxTotalDurationInMillis} after the invocation started or later, the invocation fails immediately.
+ * <p>
+ * The first attempt runs on the calling thread. Retries run on the {@code executor}, even if the delay is 0,
+ * so that retrying actions that fail synchronously doesn't grow the stack. If the returned stage is completed
+ * (e.g. cancelled) before the action succeeds, no further attempts are made.
+ */
+public class AsyncRetry<V> implements Supplier<CompletionStage<V>> {
+    private final Supplier<CompletionStage<V>> delegate;
+    private final String description;
+
+    private final ExceptionClassifier retryOn; // `abortOn` takes precedence
+    private final long maxRetries;
+    private final long maxTotalDurationInNanos;
+    private final SchedulableDelay.Factory delayBetweenRetries;
+    private final RetryBudget retryBudget;
+    private final ScheduledExecutorService executor;
+    private final Stopwatch stopwatch;
+
+    public AsyncRetry(Supplier<CompletionStage<V>> delegate, String description, SetOfThrowables retryOn,
+                      SetOfThrowables abortOn, long maxRetries, long maxTotalDurationInMillis,
+                      SchedulableDelay.Factory delayBetweenRetries, RetryBudget retryBudget, ScheduledExecutorService executor,
+                      Stopwatch stopwatch) {
+        this.delegate = checkNotNull(delegate, "Retry action must be set");
+        this.description = checkNotNull(description, "Retry action description must be set");
+        this.retryOn = new ExceptionClassifier(checkNotNull(retryOn, "Set of retry-on throwables must be set"),
+                checkNotNull(abortOn, "Set of abort-on throwables must be set"));
+        this.maxRetries = maxRetries < 0 ? Long.MAX_VALUE : maxRetries;
+        this.maxTotalDurationInNanos = maxTotalDurationInMillis <= 0
+                ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxTotalDurationInMillis);
+        this.delayBetweenRetries = checkNotNull(delayBetweenRetries, "Delay factory must be set");
+        this.retryBudget = checkNotNull(retryBudget, "Retry budget must be set");
+        this.executor = checkNotNull(executor, "Executor must be set");
+        this.stopwatch = Stopwatch.withNanos(checkNotNull(stopwatch, "Stopwatch must be set"));
+    }
+
+    @Override
+    public CompletionStage<V> get() {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        retryBudget.recordRequest();
+        new Invocation(result, stopwatch.nowInNanos()).attempt();
+        return result;
+    }
+
+    private final class Invocation {
+        private final CompletableFuture<V> result;
+        private final long start;
+
+        // only accessed by one thread at a time, attempts never overlap
+        private long counter = 0;
+        private SchedulableDelay delay; // created lazily, so that invocations that don't retry don't allocate
+
+        Invocation(CompletableFuture<V> result, long start) {
+            this.result = result;
+            this.start = start;
+        }
+
+        void attempt() {
+            if (result.isDone()) {
+                return;
+            }
+
+            if (counter > maxRetries || stopwatch.elapsedInNanos(start) >= maxTotalDurationInNanos) {
+                failReachedLimits();
+                return;
+            }
+
+            try {
+                delegate.get().whenComplete((value, error) -> {
+                    if (error == null) {
+                        result.complete(value);
+                    } else {
+                        afterFailure(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    }
+                });
+            } catch (Throwable e) {
+                // the action failed synchronously
+                afterFailure(e);
+            }
+        }
+
+        private void afterFailure(Throwable error) {
+            // specifying `abortOn` is only useful when it's more specific than `retryOn`;
+            // otherwise, if the exception isn't present in `retryOn`, it's always an abort
+            if (!retryOn.handles(error)) {
+                result.completeExceptionally(error);
+                return;
+            }
+
+            try {
+                // fail fast, there's no point in waiting for a retry that won't happen
+                long remainingInNanos = maxTotalDurationInNanos - stopwatch.elapsedInNanos(start);
+                if (counter >= maxRetries || remainingInNanos <= 0) {
+                    failReachedLimits();
+                    return;
+                }
+                if (delay == null) {
+                    delay = delayBetweenRetries.create();
+                }
+                long delayInMillis = delay.nextDelayInMillis();
+                if (delayInMillis >= TimeUnit.NANOSECONDS.toMillis(remainingInNanos)) {
+                    failReachedLimits();
+                    return;
+                }
+                // the token is withdrawn last, so that it's only spent when the retry is going to happen
+                if (!retryBudget.tryAcquireRetry()) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+
+                counter++;
+                executor.schedule(this::attempt, delayInMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(new FaultToleranceException(description + " couldn't schedule retry", e));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void failReachedLimits() {
+            result.completeExceptionally(new FaultToleranceException(
+                    description + " reached max retries or max retry duration"));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+/**
+ * Base class for delays whose length changes between subsequent retries of a single invocation.
+ * Instances are created by a {@link Delay.Factory} for each invocation and are not thread-safe.
+ */
+abstract class BackoffDelay implements SchedulableDelay {
+    @Override
+    public abstract long nextDelayInMillis();
+}
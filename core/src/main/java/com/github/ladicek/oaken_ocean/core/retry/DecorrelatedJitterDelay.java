@@ -0,0 +1,29 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+final class DecorrelatedJitterDelay extends BackoffDelay {
+    private final long baseDelayInMillis;
+    private final long maxDelayInMillis;
+
+    private long previousDelayInMillis;
+
+    DecorrelatedJitterDelay(long baseDelayInMillis, long maxDelayInMillis) {
+        this.baseDelayInMillis = baseDelayInMillis;
+        this.maxDelayInMillis = maxDelayInMillis;
+        this.previousDelayInMillis = baseDelayInMillis;
+    }
+
+    @Override
+    public long nextDelayInMillis() {
+        // the previous delay is at most `maxDelayInMillis`, so the upper bound is computed without overflow
+        long upperBound = previousDelayInMillis > maxDelayInMillis / 3 ? maxDelayInMillis : previousDelayInMillis * 3;
+        long result = upperBound == baseDelayInMillis
+                ? baseDelayInMillis
+                // upper bound is exclusive
+                : ThreadLocalRandom.current().nextLong(baseDelayInMillis,
+                        upperBound == Long.MAX_VALUE ? upperBound : upperBound + 1);
+        previousDelayInMillis = result;
+        return result;
+    }
+}
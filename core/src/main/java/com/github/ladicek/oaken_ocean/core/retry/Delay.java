@@ -1,5 +1,75 @@
 package com.github.ladicek.oaken_ocean.core.retry;
 
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
 public interface Delay {
     void sleep() throws InterruptedException;
+
+    /**
+     * Same as {@link #sleep()}, but never sleeps for longer than {@code maxSleepInNanos}. {@link Retry} calls
+     * this with the remaining time of the invocation, so that it doesn't sleep past its deadline.
+     * <p>
+     * The default implementation can't cap the delay and just calls {@code sleep()}. {@link SchedulableDelay}
+     * can be capped.
+     */
+    default void sleep(long maxSleepInNanos) throws InterruptedException {
+        sleep();
+    }
+
+    /**
+     * Creates a {@link Delay} for each {@link Retry} invocation that needs to retry, so that the delay can change
+     * between subsequent retries of the same invocation. The created delays are only used by a single thread,
+     * but the factory itself must be thread-safe.
+     */
+    @FunctionalInterface
+    interface Factory {
+        Delay create();
+
+        /**
+         * Returns a factory that always returns given {@code delay}, which is then shared by all invocations
+         * and must be thread-safe.
+         */
+        static Factory constant(Delay delay) {
+            checkNotNull(delay, "Delay must be set");
+            return () -> delay;
+        }
+
+        /**
+         * The first retry is delayed by {@code initialDelayInMillis}, and each subsequent retry of the same invocation
+         * by {@code factor} times the previous delay, up to {@code maxDelayInMillis}. A {@link Jitter} is added
+         * to each computed delay.
+         */
+        static SchedulableDelay.Factory exponential(long initialDelayInMillis, double factor, long maxDelayInMillis, Jitter jitter) {
+            check(initialDelayInMillis, initialDelayInMillis >= 0, "Initial delay must be >= 0");
+            check(factor, factor >= 1.0, "Exponential backoff factor must be >= 1");
+            check(maxDelayInMillis, maxDelayInMillis >= initialDelayInMillis, "Max delay must be >= initial delay");
+            checkNotNull(jitter, "Jitter must be set");
+
+            return () -> new ExponentialBackoffDelay(initialDelayInMillis, factor, maxDelayInMillis, jitter);
+        }
+
+        /**
+         * The {@code n}-th retry of an invocation (counting from 0) is delayed by a random value between 0
+         * and {@code min(maxDelayInMillis, baseDelayInMillis * 2^n)}. This is the "full jitter" backoff.
+         */
+        static SchedulableDelay.Factory fullJitter(long baseDelayInMillis, long maxDelayInMillis) {
+            check(baseDelayInMillis, baseDelayInMillis > 0, "Base delay must be > 0");
+            check(maxDelayInMillis, maxDelayInMillis >= baseDelayInMillis, "Max delay must be >= base delay");
+
+            return () -> new FullJitterDelay(baseDelayInMillis, maxDelayInMillis);
+        }
+
+        /**
+         * Each retry of an invocation is delayed by a random value between {@code baseDelayInMillis} and 3 times
+         * the previous delay (the first "previous delay" being {@code baseDelayInMillis}), up to
+         * {@code maxDelayInMillis}. This is the "decorrelated jitter" backoff.
+         */
+        static SchedulableDelay.Factory decorrelatedJitter(long baseDelayInMillis, long maxDelayInMillis) {
+            check(baseDelayInMillis, baseDelayInMillis > 0, "Base delay must be > 0");
+            check(maxDelayInMillis, maxDelayInMillis >= baseDelayInMillis, "Max delay must be >= base delay");
+
+            return () -> new DecorrelatedJitterDelay(baseDelayInMillis, maxDelayInMillis);
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+final class ExponentialBackoffDelay extends BackoffDelay {
+    private final double factor;
+    private final long maxDelayInMillis;
+    private final Jitter jitter;
+
+    private long delayInMillis;
+
+    ExponentialBackoffDelay(long initialDelayInMillis, double factor, long maxDelayInMillis, Jitter jitter) {
+        this.factor = factor;
+        this.maxDelayInMillis = maxDelayInMillis;
+        this.jitter = jitter;
+        this.delayInMillis = initialDelayInMillis;
+    }
+
+    @Override
+    public long nextDelayInMillis() {
+        long result = delayInMillis;
+        // the cast saturates to Long.MAX_VALUE for huge values, so this doesn't overflow
+        delayInMillis = (long) Math.min(delayInMillis * factor, (double) maxDelayInMillis);
+
+        long jitterValue = jitter.generate();
+        if (jitterValue > 0 && result > Long.MAX_VALUE - jitterValue) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(result + jitterValue, 0);
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+final class FullJitterDelay extends BackoffDelay {
+    private final long maxDelayInMillis;
+
+    private long ceilingInMillis;
+
+    FullJitterDelay(long baseDelayInMillis, long maxDelayInMillis) {
+        this.maxDelayInMillis = maxDelayInMillis;
+        this.ceilingInMillis = baseDelayInMillis;
+    }
+
+    @Override
+    public long nextDelayInMillis() {
+        long ceiling = ceilingInMillis;
+        // doubling can't overflow, the ceiling is at most `maxDelayInMillis`
+        ceilingInMillis = ceiling > maxDelayInMillis / 2 ? maxDelayInMillis : ceiling * 2;
+
+        // upper bound is exclusive
+        return ThreadLocalRandom.current().nextLong(ceiling == Long.MAX_VALUE ? ceiling : ceiling + 1);
+    }
+}
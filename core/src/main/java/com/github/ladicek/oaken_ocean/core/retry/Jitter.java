@@ -1,6 +1,8 @@
 package com.github.ladicek.oaken_ocean.core.retry;
 
 /**
+ * Generated values are in the same unit as the delay they are added to: milliseconds for {@link ThreadSleepDelay}
+ * and nanoseconds for {@link ParkNanosDelay}. The provided implementations don't depend on the unit.
  * Implementations must be thread-safe.
  */
 public interface Jitter {
@@ -0,0 +1,74 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Like {@link ThreadSleepDelay}, but with nanosecond resolution; both {@code delayInNanos} and values generated
+ * by the {@code jitter} are in nanoseconds. Waiting is done by {@link LockSupport#parkNanos(Object, long)},
+ * which holds no monitor, so a virtual thread waiting for the next retry doesn't pin its carrier thread.
+ * If the thread is interrupted, {@link InterruptedException} is thrown and the interrupt status is cleared,
+ * just like {@link Thread#sleep(long)} does.
+ * <p>
+ * The actual delay can't be shorter than the time to park and unpark a thread, which is typically tens
+ * of microseconds.
+ */
+public class ParkNanosDelay implements SchedulableDelay {
+    private final long delayInNanos;
+    private final Jitter jitter;
+
+    public ParkNanosDelay(long delayInNanos, Jitter jitter) {
+        this.delayInNanos = check(delayInNanos, delayInNanos >= 0, "Delay must be >= 0");
+        this.jitter = checkNotNull(jitter, "Jitter must be set");
+    }
+
+    @Override
+    public void sleep() throws InterruptedException {
+        park(nextDelayInNanos());
+    }
+
+    @Override
+    public void sleep(long maxSleepInNanos) throws InterruptedException {
+        park(Math.min(nextDelayInNanos(), maxSleepInNanos));
+    }
+
+    /**
+     * Rounded up to whole milliseconds, because {@link AsyncRetry} can't schedule with a higher precision.
+     */
+    @Override
+    public long nextDelayInMillis() {
+        long nanos = nextDelayInNanos();
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        return TimeUnit.MILLISECONDS.toNanos(millis) < nanos ? millis + 1 : millis;
+    }
+
+    private long nextDelayInNanos() {
+        long jitterInNanos = jitter.generate();
+        if (jitterInNanos > 0 && delayInNanos > Long.MAX_VALUE - jitterInNanos) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(delayInNanos + jitterInNanos, 0);
+    }
+
+    private void park(long nanos) throws InterruptedException {
+        if (nanos <= 0) {
+            return;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        long end = System.nanoTime() + nanos;
+        // `parkNanos` may return spuriously, so it's repeated until the delay elapses
+        while (nanos > 0) {
+            LockSupport.parkNanos(this, nanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            nanos = end - System.nanoTime();
+        }
+    }
+}
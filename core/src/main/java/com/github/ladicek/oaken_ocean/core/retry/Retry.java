@@ -1,42 +1,86 @@
 package com.github.ladicek.oaken_ocean.core.retry;
 
-import com.github.ladicek.oaken_ocean.core.stopwatch.RunningStopwatch;
+import com.github.ladicek.oaken_ocean.core.deadline.Deadline;
 import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+import com.github.ladicek.oaken_ocean.core.util.ExceptionClassifier;
 import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
 import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
 
 public class Retry<V> implements Callable<V> {
     private final Callable<V> delegate;
     private final String description;
 
-    private final SetOfThrowables retryOn;
-    private final SetOfThrowables abortOn;
+    private final ExceptionClassifier retryOn; // `abortOn` takes precedence
     private final long maxRetries; // this is an `int` in MP FT, but `long` allows easier handling of "infinity"
-    private final long maxTotalDurationInMillis;
-    private final Delay delayBetweenRetries;
+    private final long maxTotalDurationInNanos;
+    private final Delay.Factory delayBetweenRetries;
+    private final RetryAfter retryAfter;
+    private final long maxRetryAfterInMillis;
+    private final RetryBudget retryBudget;
     private final Stopwatch stopwatch;
 
     public Retry(Callable<V> delegate, String description, SetOfThrowables retryOn, SetOfThrowables abortOn,
                  long maxRetries, long maxTotalDurationInMillis, Delay delayBetweenRetries, Stopwatch stopwatch) {
+        this(delegate, description, retryOn, abortOn, maxRetries, maxTotalDurationInMillis,
+                Delay.Factory.constant(delayBetweenRetries), RetryBudget.UNLIMITED, stopwatch);
+    }
+
+    public Retry(Callable<V> delegate, String description, SetOfThrowables retryOn, SetOfThrowables abortOn,
+                 long maxRetries, long maxTotalDurationInMillis, Delay.Factory delayBetweenRetries,
+                 RetryBudget retryBudget, Stopwatch stopwatch) {
+        this(delegate, description, retryOn, abortOn, maxRetries, maxTotalDurationInMillis, delayBetweenRetries,
+                RetryAfter.NONE, 0, retryBudget, stopwatch);
+    }
+
+    /**
+     * When {@code retryAfter} extracts a delay from the failure, it is used instead of {@code delayBetweenRetries},
+     * capped at {@code maxRetryAfterInMillis} (not capped if {@code 0}). If the capped delay exceeds the remaining
+     * max retry duration (or the remaining time of an enclosing deadline), the failure is rethrown immediately,
+     * because the retry couldn't happen anyway.
+     */
+    public Retry(Callable<V> delegate, String description, SetOfThrowables retryOn, SetOfThrowables abortOn,
+                 long maxRetries, long maxTotalDurationInMillis, Delay.Factory delayBetweenRetries,
+                 RetryAfter retryAfter, long maxRetryAfterInMillis, RetryBudget retryBudget, Stopwatch stopwatch) {
         this.delegate = checkNotNull(delegate, "Retry action must be set");
         this.description = checkNotNull(description, "Retry action description must be set");
-        this.retryOn = checkNotNull(retryOn, "Set of retry-on throwables must be set");
-        this.abortOn = checkNotNull(abortOn, "Set of abort-on throwables must be set");
+        this.retryOn = new ExceptionClassifier(checkNotNull(retryOn, "Set of retry-on throwables must be set"),
+                checkNotNull(abortOn, "Set of abort-on throwables must be set"));
         this.maxRetries = maxRetries < 0 ? Long.MAX_VALUE : maxRetries;
-        this.maxTotalDurationInMillis = maxTotalDurationInMillis <= 0 ? Long.MAX_VALUE : maxTotalDurationInMillis;
-        this.delayBetweenRetries = checkNotNull(delayBetweenRetries, "Delay must be set");
-        this.stopwatch = checkNotNull(stopwatch, "Stopwatch must be set");
+        this.maxTotalDurationInNanos = maxTotalDurationInMillis <= 0
+                ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxTotalDurationInMillis);
+        this.delayBetweenRetries = checkNotNull(delayBetweenRetries, "Delay factory must be set");
+        this.retryAfter = checkNotNull(retryAfter, "Retry after extractor must be set");
+        check(maxRetryAfterInMillis, maxRetryAfterInMillis >= 0, "Max retry after must be >= 0");
+        this.maxRetryAfterInMillis = maxRetryAfterInMillis == 0 ? Long.MAX_VALUE : maxRetryAfterInMillis;
+        this.retryBudget = checkNotNull(retryBudget, "Retry budget must be set");
+        this.stopwatch = Stopwatch.withNanos(checkNotNull(stopwatch, "Stopwatch must be set"));
     }
 
     @Override
     public V call() throws Exception {
+        // nested strategies see the max retry duration as a deadline
+        Deadline previousDeadline = Deadline.enter(maxTotalDurationInNanos, stopwatch);
+        try {
+            return retry(Deadline.current());
+        } finally {
+            Deadline.restore(previousDeadline);
+        }
+    }
+
+    private V retry(Deadline deadline) throws Exception {
         long counter = 0;
-        RunningStopwatch runningStopwatch = stopwatch.start();
-        while (counter <= maxRetries && runningStopwatch.elapsedTimeInMillis() < maxTotalDurationInMillis) {
+        Delay delay = null; // created lazily, so that invocations that don't retry don't allocate
+        long start = stopwatch.nowInNanos();
+        retryBudget.recordRequest();
+        long retryAfterInMillis = RetryAfter.NO_HINT;
+        while (counter <= maxRetries && stopwatch.elapsedInNanos(start) < maxTotalDurationInNanos
+                && deadline.allowsAttempt()) {
             try {
                 return delegate.call();
             } catch (InterruptedException e) {
@@ -48,13 +92,38 @@ public class Retry<V> implements Callable<V> {
 
                 // specifying `abortOn` is only useful when it's more specific than `retryOn`;
                 // otherwise, if the exception isn't present in `retryOn`, it's always an abort
-                if (abortOn.includes(e.getClass()) || !retryOn.includes(e.getClass())) {
+                if (!retryOn.handles(e)) {
+                    throw e;
+                }
+
+                // fail fast, there's no point in waiting for a retry that won't happen
+                if (counter >= maxRetries || stopwatch.elapsedInNanos(start) >= maxTotalDurationInNanos
+                        || !deadline.allowsAttempt()) {
+                    throw new FaultToleranceException(description + " reached max retries or max retry duration");
+                }
+                long hint = retryAfter.retryAfterInMillis(e);
+                retryAfterInMillis = hint < 0 ? RetryAfter.NO_HINT : Math.min(hint, maxRetryAfterInMillis);
+                if (retryAfterInMillis > deadline.remainingInMillis()) {
+                    throw e;
+                }
+                // the token is withdrawn last, so that it's only spent when the retry is going to happen
+                if (!retryBudget.tryAcquireRetry()) {
                     throw e;
                 }
             }
 
             try {
-                delayBetweenRetries.sleep();
+                Delay currentDelay;
+                if (retryAfterInMillis != RetryAfter.NO_HINT) {
+                    currentDelay = new ThreadSleepDelay(retryAfterInMillis, Jitter.ZERO);
+                } else {
+                    if (delay == null) {
+                        delay = delayBetweenRetries.create();
+                    }
+                    currentDelay = delay;
+                }
+                // there's no point in sleeping past the deadline, the invocation won't be retried
+                currentDelay.sleep(Math.max(deadline.remainingInNanos(), 0));
             } catch (InterruptedException e) {
                 throw e;
             } catch (Exception e) {
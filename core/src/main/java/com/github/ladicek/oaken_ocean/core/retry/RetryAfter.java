@@ -0,0 +1,38 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+/**
+ * Extracts a delay suggested by the failed action (such as a "retry after" hint of a throttling response)
+ * from the thrown exception. {@link Retry} waits for the suggested delay instead of its {@link Delay}.
+ * Must be thread-safe.
+ */
+@FunctionalInterface
+public interface RetryAfter {
+    /**
+     * Returned from {@link #retryAfterInMillis(Throwable)} when the exception doesn't suggest a delay.
+     */
+    long NO_HINT = -1;
+
+    /**
+     * Never suggests a delay.
+     */
+    RetryAfter NONE = failure -> NO_HINT;
+
+    /**
+     * Suggests the delay of exceptions that implement {@link Aware}.
+     */
+    RetryAfter AWARE = failure -> failure instanceof Aware
+            ? Math.max(((Aware) failure).retryAfterInMillis(), 0)
+            : NO_HINT;
+
+    /**
+     * Returns the suggested delay in milliseconds, or {@link #NO_HINT}.
+     */
+    long retryAfterInMillis(Throwable failure);
+
+    /**
+     * Exceptions that know when the action may be retried, typically from a response of a remote service.
+     */
+    interface Aware {
+        long retryAfterInMillis();
+    }
+}
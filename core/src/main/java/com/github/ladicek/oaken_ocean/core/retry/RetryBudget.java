@@ -0,0 +1,125 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.RunningStopwatch;
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Limits the number of retries across all {@link Retry} and {@link AsyncRetry} instances that share it,
+ * so that a degraded dependency doesn't get its load multiplied by {@code maxRetries + 1}. This is a token bucket:
+ * each first attempt deposits {@code retryRatio} of a token, the bucket is also refilled by
+ * {@code minRetriesPerSecond} tokens per second, each retry withdraws one token, and the bucket holds
+ * at most {@code capacity} tokens. When the bucket is empty, retrying fails fast with the last failure.
+ * <p>
+ * First attempts are only counted, which is cheap even under contention. The counts are moved to the bucket
+ * when a retry needs a token. The bucket starts full.
+ */
+public final class RetryBudget {
+    /**
+     * Retries are never limited.
+     */
+    public static final RetryBudget UNLIMITED = new RetryBudget();
+
+    // the bucket is kept in 1/1000 of a token, which makes the time-based refill per millisecond exact
+    private static final long SCALE = 1000;
+
+    private final boolean unlimited;
+    private final long depositPerRequest;
+    private final long minRetriesPerSecond;
+    private final long capacity;
+    private final RunningStopwatch runningStopwatch;
+
+    private final LongAdder requests = new LongAdder();
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillMillis = new AtomicLong(0);
+
+    public RetryBudget(double retryRatio, int minRetriesPerSecond, int capacity, Stopwatch stopwatch) {
+        check(retryRatio, retryRatio >= 0.0 && retryRatio <= 1000.0, "Retry budget ratio must be >= 0 and <= 1000");
+        check(minRetriesPerSecond, minRetriesPerSecond >= 0, "Retry budget min retries per second must be >= 0");
+        check(capacity, capacity > 0, "Retry budget capacity must be > 0");
+        checkNotNull(stopwatch, "Stopwatch must be set");
+
+        this.unlimited = false;
+        this.depositPerRequest = Math.round(retryRatio * SCALE);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.capacity = capacity * SCALE;
+        this.runningStopwatch = stopwatch.start();
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    private RetryBudget() {
+        this.unlimited = true;
+        this.depositPerRequest = 0;
+        this.minRetriesPerSecond = 0;
+        this.capacity = 0;
+        this.runningStopwatch = null;
+        this.balance = null;
+    }
+
+    /**
+     * Records a first attempt. Strategies other than retries that duplicate attempts (such as hedging)
+     * may use a budget too.
+     */
+    public void recordRequest() {
+        if (!unlimited) {
+            requests.increment();
+        }
+    }
+
+    /**
+     * Returns whether a retry is allowed, withdrawing a token if so.
+     */
+    public boolean tryAcquireRetry() {
+        if (unlimited) {
+            return true;
+        }
+
+        // concurrent increments may be missed by `sumThenReset`; that only makes the budget slightly stricter
+        long deposit = saturatedMultiply(requests.sumThenReset(), depositPerRequest);
+        long refill = saturatedMultiply(elapsedSinceLastRefill(), minRetriesPerSecond); // 1/1000 token per ms
+        long added = Math.min(capacity, deposit) + Math.min(capacity, refill); // can't overflow
+
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(capacity, current + added);
+            boolean acquired = next >= SCALE;
+            if (acquired) {
+                next -= SCALE;
+            }
+            if (balance.compareAndSet(current, next)) {
+                return acquired;
+            }
+        }
+    }
+
+    /**
+     * Returns a token withdrawn by {@link #tryAcquireRetry()} when the retry didn't happen after all.
+     */
+    public void releaseRetry() {
+        if (!unlimited) {
+            balance.accumulateAndGet(SCALE, (current, token) -> Math.min(capacity, current + token));
+        }
+    }
+
+    // returns the time since the last refill and makes now the last refill, or returns 0 if another thread did that
+    private long elapsedSinceLastRefill() {
+        long now = runningStopwatch.elapsedTimeInMillis();
+        long last = lastRefillMillis.get();
+        if (now > last && lastRefillMillis.compareAndSet(last, now)) {
+            return now - last;
+        }
+        return 0;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link Delay} that knows how long it is before waiting, so that {@link AsyncRetry} can schedule the next
+ * attempt instead of sleeping. Sleeping is derived from {@link #nextDelayInMillis()}.
+ */
+public interface SchedulableDelay extends Delay {
+    /**
+     * Returns how long the next delay is in milliseconds, without sleeping, and advances to the following delay
+     * just like {@link #sleep()} would. The result is never negative.
+     */
+    long nextDelayInMillis();
+
+    @Override
+    default void sleep() throws InterruptedException {
+        long sleep = nextDelayInMillis();
+        if (sleep > 0) {
+            Thread.sleep(sleep);
+        }
+    }
+
+    /**
+     * Sleeps for {@link #nextDelayInMillis()}, capped at {@code maxSleepInNanos}.
+     */
+    @Override
+    default void sleep(long maxSleepInNanos) throws InterruptedException {
+        long sleep = Math.min(TimeUnit.MILLISECONDS.toNanos(nextDelayInMillis()), maxSleepInNanos);
+        if (sleep > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+    }
+
+    /**
+     * Same as {@link Delay.Factory}, for schedulable delays.
+     */
+    @FunctionalInterface
+    interface Factory extends Delay.Factory {
+        @Override
+        SchedulableDelay create();
+
+        /**
+         * Returns a factory that always returns given {@code delay}, which is then shared by all invocations
+         * and must be thread-safe.
+         */
+        static Factory constant(SchedulableDelay delay) {
+            checkNotNull(delay, "Delay must be set");
+            return () -> delay;
+        }
+    }
+}
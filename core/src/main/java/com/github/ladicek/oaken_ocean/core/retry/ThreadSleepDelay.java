@@ -3,7 +3,7 @@ package com.github.ladicek.oaken_ocean.core.retry;
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
 
-public class ThreadSleepDelay implements Delay {
+public class ThreadSleepDelay implements SchedulableDelay {
     private final long delayInMillis;
     private final Jitter jitter;
 
@@ -13,10 +13,7 @@ public class ThreadSleepDelay implements Delay {
     }
 
     @Override
-    public void sleep() throws InterruptedException {
-        long sleep = delayInMillis + jitter.generate();
-        if (sleep > 0) {
-            Thread.sleep(sleep);
-        }
+    public long nextDelayInMillis() {
+        return Math.max(delayInMillis + jitter.generate(), 0);
     }
 }
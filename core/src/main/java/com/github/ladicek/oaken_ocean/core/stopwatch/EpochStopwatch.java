@@ -0,0 +1,40 @@
+package com.github.ladicek.oaken_ocean.core.stopwatch;
+
+import java.util.concurrent.TimeUnit;
+
+// measures primitive timestamps from a single `RunningStopwatch` of a stopwatch that only implements `start()`
+final class EpochStopwatch implements Stopwatch {
+    // whether given class of stopwatch relies on the default `Stopwatch.nowInNanos()`
+    private static final ClassValue<Boolean> NEEDS_EPOCH = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("nowInNanos").getDeclaringClass() == Stopwatch.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e); // every stopwatch has it
+            }
+        }
+    };
+
+    private final Stopwatch delegate;
+    private final RunningStopwatch epoch;
+
+    private EpochStopwatch(Stopwatch delegate) {
+        this.delegate = delegate;
+        this.epoch = delegate.start();
+    }
+
+    static Stopwatch wrapIfNeeded(Stopwatch stopwatch) {
+        return NEEDS_EPOCH.get(stopwatch.getClass()) ? new EpochStopwatch(stopwatch) : stopwatch;
+    }
+
+    @Override
+    public RunningStopwatch start() {
+        return delegate.start();
+    }
+
+    @Override
+    public long nowInNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(epoch.elapsedTimeInMillis());
+    }
+}
@@ -2,4 +2,33 @@ package com.github.ladicek.oaken_ocean.core.stopwatch;
 
 public interface Stopwatch {
     RunningStopwatch start();
+
+    /**
+     * Returns the current value of a monotonic clock in nanoseconds. The value itself has no meaning, it should
+     * only be passed to {@link #elapsedInNanos(long)} later. Unlike {@link #start()}, this doesn't allocate,
+     * so it should be preferred on hot paths.
+     * <p>
+     * The default implementation throws {@link UnsupportedOperationException}. Stopwatches that don't implement
+     * this method should be passed through {@link #withNanos(Stopwatch)} first, which the strategies do.
+     */
+    default long nowInNanos() {
+        throw new UnsupportedOperationException(getClass().getName() + " doesn't implement nowInNanos(), use"
+                + " Stopwatch.withNanos()");
+    }
+
+    /**
+     * Returns the time elapsed since {@code startInNanos}, which was previously returned by {@link #nowInNanos()}.
+     */
+    default long elapsedInNanos(long startInNanos) {
+        return nowInNanos() - startInNanos;
+    }
+
+    /**
+     * Returns {@code stopwatch} if it implements {@link #nowInNanos()}. Otherwise, returns a stopwatch that delegates
+     * {@link #start()} to {@code stopwatch} and derives {@link #nowInNanos()} from a single {@link RunningStopwatch}
+     * started now, so its resolution is only milliseconds. Call this once, when a strategy is created.
+     */
+    static Stopwatch withNanos(Stopwatch stopwatch) {
+        return EpochStopwatch.wrapIfNeeded(stopwatch);
+    }
 }
@@ -13,4 +13,9 @@ public class SystemStopwatch implements Stopwatch {
             }
         };
     }
+
+    @Override
+    public long nowInNanos() {
+        return System.nanoTime();
+    }
 }
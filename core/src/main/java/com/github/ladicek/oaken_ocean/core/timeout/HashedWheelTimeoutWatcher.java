@@ -0,0 +1,224 @@
+package com.github.ladicek.oaken_ocean.core.timeout;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
+
+/**
+ * Watches timeouts on a hashed timing wheel, which is cheaper than {@link ScheduledExecutorTimeoutWatcher}
+ * when there are many pending timeouts: scheduling and cancelling a watch is O(1) and lock-free, because both
+ * only enqueue the watch into a concurrent queue. A single background thread ticks every {@code tickInMillis},
+ * moves the enqueued watches into (or out of) the {@code wheelSize} buckets and expires all due watches
+ * of the current bucket. Watches whose timeout is longer than one rotation of the wheel stay in their bucket
+ * for the remaining number of rotations.
+ * <p>
+ * A timeout is never signalled before it elapses, but it may be signalled up to one tick later. The wheel should
+ * be large enough so that most timeouts are shorter than one rotation ({@code tickInMillis * wheelSize}).
+ * <p>
+ * Watches that are pending when the watcher is closed are never signalled, and scheduling after closing fails.
+ * If signalling a timeout fails, the exception is passed to the ticker thread's
+ * {@linkplain Thread.UncaughtExceptionHandler uncaught exception handler} and the ticker keeps going.
+ */
+public final class HashedWheelTimeoutWatcher implements TimeoutWatcher, Closeable {
+    private static final int MAX_WHEEL_SIZE = 1 << 30;
+
+    private final long tickInNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+
+    private final Queue<Watch> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Watch> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final Thread ticker;
+    private volatile boolean closed;
+
+    public HashedWheelTimeoutWatcher(long tickInMillis, int wheelSize) {
+        check(tickInMillis, tickInMillis > 0, "Timing wheel tick must be > 0");
+        check(wheelSize, wheelSize > 0 && wheelSize <= MAX_WHEEL_SIZE,
+                "Timing wheel size must be > 0 and <= " + MAX_WHEEL_SIZE);
+
+        this.tickInNanos = TimeUnit.MILLISECONDS.toNanos(tickInMillis);
+        // rounded up to a power of 2, so that the bucket can be computed by masking
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[size == 0 ? 1 : size];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.startTime = System.nanoTime();
+
+        this.ticker = new Thread(this::tick, "oaken-ocean-timeout-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public TimeoutWatch schedule(TimeoutExecution execution) {
+        if (closed) {
+            throw new IllegalStateException("Timeout watcher is closed");
+        }
+
+        Watch watch = new Watch(this, execution,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(execution.timeoutInMillis()));
+        scheduled.add(watch);
+        return watch;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(ticker);
+    }
+
+    private void tick() {
+        long tick = 0;
+        while (!closed) {
+            long tickEnd = startTime + (tick + 1) * tickInNanos;
+            long remaining;
+            while ((remaining = tickEnd - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (closed) {
+                break;
+            }
+
+            transferScheduled(tick);
+            removeCancelled();
+            wheel[(int) (tick & mask)].expire(tickEnd);
+            tick++;
+        }
+
+        scheduled.clear();
+        cancelled.clear();
+    }
+
+    private void transferScheduled(long currentTick) {
+        Watch watch;
+        while ((watch = scheduled.poll()) != null) {
+            if (watch.state != Watch.STATE_PENDING) {
+                continue;
+            }
+
+            // the watch expires at the end of the first tick that ends at or after the deadline
+            long ticks = Math.max((watch.deadline - startTime) / tickInNanos, currentTick);
+            watch.remainingRounds = (ticks - currentTick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(watch);
+        }
+    }
+
+    private void removeCancelled() {
+        Watch watch;
+        while ((watch = cancelled.poll()) != null) {
+            if (watch.bucket != null) {
+                watch.bucket.remove(watch);
+            }
+        }
+    }
+
+    // there's no logging in this library, so the failure goes where uncaught exceptions of the ticker thread would
+    private static void report(Throwable e) {
+        Thread thread = Thread.currentThread();
+        try {
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        } catch (Throwable ignored) {
+            // nowhere else to report
+        }
+    }
+
+    // only accessed by the ticker thread
+    private static final class Bucket {
+        private Watch head;
+        private Watch tail;
+
+        void add(Watch watch) {
+            watch.bucket = this;
+            if (head == null) {
+                head = tail = watch;
+            } else {
+                tail.next = watch;
+                watch.prev = tail;
+                tail = watch;
+            }
+        }
+
+        void remove(Watch watch) {
+            if (watch.prev != null) {
+                watch.prev.next = watch.next;
+            } else {
+                head = watch.next;
+            }
+            if (watch.next != null) {
+                watch.next.prev = watch.prev;
+            } else {
+                tail = watch.prev;
+            }
+            watch.prev = null;
+            watch.next = null;
+            watch.bucket = null;
+        }
+
+        void expire(long now) {
+            Watch watch = head;
+            while (watch != null) {
+                Watch next = watch.next;
+                if (watch.remainingRounds <= 0 && watch.deadline - now <= 0) {
+                    remove(watch);
+                    try {
+                        watch.expire();
+                    } catch (Throwable e) {
+                        // a failing watch must not stop the ticker, other watches would never be signalled
+                        report(e);
+                    }
+                } else {
+                    watch.remainingRounds--;
+                }
+                watch = next;
+            }
+        }
+    }
+
+    private static final class Watch implements TimeoutWatch {
+        static final int STATE_PENDING = 0;
+        static final int STATE_CANCELLED = 1;
+        static final int STATE_EXPIRED = 2;
+
+        static final AtomicIntegerFieldUpdater<Watch> STATE = AtomicIntegerFieldUpdater.newUpdater(Watch.class, "state");
+
+        private final HashedWheelTimeoutWatcher watcher;
+        private final TimeoutExecution execution;
+        final long deadline;
+
+        volatile int state = STATE_PENDING;
+
+        // only accessed by the ticker thread
+        long remainingRounds;
+        Bucket bucket;
+        Watch prev;
+        Watch next;
+
+        Watch(HashedWheelTimeoutWatcher watcher, TimeoutExecution execution, long deadline) {
+            this.watcher = watcher;
+            this.execution = execution;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void cancel() {
+            if (STATE.compareAndSet(this, STATE_PENDING, STATE_CANCELLED)) {
+                watcher.cancelled.add(this);
+            }
+        }
+
+        void expire() {
+            if (STATE.compareAndSet(this, STATE_PENDING, STATE_EXPIRED)) {
+                execution.timeoutAndInterrupt();
+            }
+        }
+    }
+}
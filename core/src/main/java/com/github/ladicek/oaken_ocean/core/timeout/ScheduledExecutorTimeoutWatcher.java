@@ -1,17 +1,59 @@
 package com.github.ladicek.oaken_ocean.core.timeout;
 
+import java.io.Closeable;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-public class ScheduledExecutorTimeoutWatcher implements TimeoutWatcher {
+/**
+ * Watches are cancelled when the execution finishes. A watcher created with the no-arg constructor owns
+ * a single-threaded {@link ScheduledThreadPoolExecutor} whose
+ * {@linkplain ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy(boolean) remove-on-cancel policy} is enabled,
+ * so that its queue only holds watches of in-flight executions; such watcher must be closed. A watcher created
+ * with a given {@code executor} uses it as is, so cancelled watches stay in its queue until their timeout elapses,
+ * unless the executor removes them on its own.
+ */
+public class ScheduledExecutorTimeoutWatcher implements TimeoutWatcher, Closeable {
     private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+
+    public ScheduledExecutorTimeoutWatcher() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "oaken-ocean-timeout-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.executor = executor;
+        this.ownsExecutor = true;
+    }
 
     public ScheduledExecutorTimeoutWatcher(ScheduledExecutorService executor) {
         this.executor = executor;
+        this.ownsExecutor = false;
+    }
+
+    @Override
+    public TimeoutWatch schedule(TimeoutExecution execution) {
+        ScheduledFuture<?> future = executor.schedule(execution::timeoutAndInterrupt, execution.timeoutInMillis(),
+                TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    // package-private for tests
+    ScheduledExecutorService executor() {
+        return executor;
     }
 
+    /**
+     * Shuts down the executor if this watcher owns it; pending watches are never signalled then.
+     * A given {@code executor} is left alone.
+     */
     @Override
-    public void schedule(TimeoutExecution execution) {
-        executor.schedule(execution::timeoutAndInterrupt, execution.timeoutInMillis(), TimeUnit.MILLISECONDS);
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
     }
 }
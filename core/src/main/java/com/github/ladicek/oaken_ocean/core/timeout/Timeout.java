@@ -1,8 +1,12 @@
 package com.github.ladicek.oaken_ocean.core.timeout;
 
+import com.github.ladicek.oaken_ocean.core.deadline.Deadline;
+import com.github.ladicek.oaken_ocean.core.stopwatch.Stopwatch;
+import com.github.ladicek.oaken_ocean.core.stopwatch.SystemStopwatch;
 import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.check;
 import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
@@ -12,31 +16,67 @@ public class Timeout<V> implements Callable<V> {
     private final String description;
 
     private final long timeoutInMillis;
+    private final long minAttemptBudgetInMillis;
     private final TimeoutWatcher watcher;
+    private final Stopwatch stopwatch;
 
     public Timeout(Callable<V> delegate, String description, long timeoutInMillis, TimeoutWatcher watcher) {
+        this(delegate, description, timeoutInMillis, watcher, new SystemStopwatch());
+    }
+
+    /**
+     * The {@code stopwatch} measures the {@link Deadline} that nested strategies see, the timeout itself
+     * is measured by the {@code watcher}.
+     */
+    public Timeout(Callable<V> delegate, String description, long timeoutInMillis, TimeoutWatcher watcher,
+                   Stopwatch stopwatch) {
+        this(delegate, description, timeoutInMillis, 0, watcher, stopwatch);
+    }
+
+    /**
+     * Neither this timeout nor nested strategies start an attempt when only {@code minAttemptBudgetInMillis}
+     * or less is left, the same as if no time was left, see {@link Deadline#enter(long, long, Stopwatch)}.
+     * Use {@code 0} to only skip attempts when no time is left.
+     */
+    public Timeout(Callable<V> delegate, String description, long timeoutInMillis, long minAttemptBudgetInMillis,
+                   TimeoutWatcher watcher, Stopwatch stopwatch) {
         this.delegate = checkNotNull(delegate, "Timeout action must be set");
         this.description = checkNotNull(description, "Timeout action description must be set");
         this.timeoutInMillis = check(timeoutInMillis, timeoutInMillis > 0, "Timeout must be > 0");
+        this.minAttemptBudgetInMillis = check(minAttemptBudgetInMillis,
+                minAttemptBudgetInMillis >= 0 && minAttemptBudgetInMillis < timeoutInMillis,
+                "Min attempt budget must be >= 0 and < timeout");
         this.watcher = checkNotNull(watcher, "Timeout watcher must be set");
+        this.stopwatch = Stopwatch.withNanos(checkNotNull(stopwatch, "Stopwatch must be set"));
     }
 
     @Override
     public V call() throws Exception {
+        // an outer strategy may have less time left than this timeout
+        long timeoutInMillis = Deadline.current().clamp(this.timeoutInMillis);
+        if (timeoutInMillis <= minAttemptBudgetInMillis || !Deadline.current().allowsAttempt()) {
+            throw new TimeoutException(description + " timed out");
+        }
+
         TimeoutExecution execution = new TimeoutExecution(Thread.currentThread(), timeoutInMillis);
-        watcher.schedule(execution);
-        // TODO ability to cancel scheduled watch inside/after execution.finish() would be nice to conserve resources
+        TimeoutWatch watch = watcher.schedule(execution);
 
         V result = null;
         Exception exception = null;
         boolean interrupted = false;
+        Deadline previousDeadline = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(timeoutInMillis),
+                TimeUnit.MILLISECONDS.toNanos(minAttemptBudgetInMillis), stopwatch);
         try {
             result = delegate.call();
-            execution.finish();
         } catch (InterruptedException e) {
             interrupted = true;
         } catch (Exception e) {
             exception = e;
+        } finally {
+            // finishing first, so that a watch that fires concurrently with cancelling doesn't interrupt the thread
+            execution.finish();
+            watch.cancel();
+            Deadline.restore(previousDeadline);
         }
 
         if (Thread.interrupted()) {
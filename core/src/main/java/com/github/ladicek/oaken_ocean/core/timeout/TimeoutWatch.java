@@ -0,0 +1,13 @@
+package com.github.ladicek.oaken_ocean.core.timeout;
+
+/**
+ * A handle to a {@link TimeoutExecution} scheduled by a {@link TimeoutWatcher}.
+ */
+@FunctionalInterface
+public interface TimeoutWatch {
+    /**
+     * Stops watching the execution, because it has finished. Should release all resources held by the watch.
+     * Does nothing if the watch has already fired.
+     */
+    void cancel();
+}
@@ -1,5 +1,5 @@
 package com.github.ladicek.oaken_ocean.core.timeout;
 
 public interface TimeoutWatcher {
-    void schedule(TimeoutExecution execution);
+    TimeoutWatch schedule(TimeoutExecution execution);
 }
@@ -0,0 +1,55 @@
+package com.github.ladicek.oaken_ocean.core.util;
+
+import static com.github.ladicek.oaken_ocean.core.util.Preconditions.checkNotNull;
+
+/**
+ * Decides whether a throwable should be handled by a fault tolerance strategy. A throwable is handled
+ * if its type is included in the {@code handled} set and isn't included in the {@code ignored} set;
+ * the {@code ignored} set takes precedence. This is the common shape of Retry's {@code retryOn}/{@code abortOn},
+ * CircuitBreaker's {@code failOn} and Fallback's {@code applyOn}/{@code skipOn}.
+ * <p>
+ * Decisions about recently classified throwable types are kept in a small cache, so that classifying
+ * the same type repeatedly doesn't perform any subtype checks. The cache is per instance and doesn't need
+ * any synchronization, so it stays cheap with many instances and many threads.
+ */
+public final class ExceptionClassifier {
+    private static final int CACHE_SIZE = 16; // must be a power of 2
+
+    private final SetOfThrowables handled;
+    private final SetOfThrowables ignored;
+
+    // direct-mapped by the identity hash code of the type; entries are immutable, so racy reads and writes
+    // are safe, and a collision or a lost write only means the decision is computed again
+    private final Decision[] cache = new Decision[CACHE_SIZE];
+
+    public ExceptionClassifier(SetOfThrowables handled, SetOfThrowables ignored) {
+        this.handled = checkNotNull(handled, "Set of handled throwables must be set");
+        this.ignored = checkNotNull(ignored, "Set of ignored throwables must be set");
+    }
+
+    /**
+     * Returns whether {@code throwable} should be handled.
+     */
+    public boolean handles(Throwable throwable) {
+        Class<? extends Throwable> type = throwable.getClass();
+        int index = System.identityHashCode(type) & (CACHE_SIZE - 1);
+        Decision decision = cache[index];
+        if (decision != null && decision.type == type) {
+            return decision.handles;
+        }
+
+        boolean handles = !ignored.includes(type) && handled.includes(type);
+        cache[index] = new Decision(type, handles);
+        return handles;
+    }
+
+    private static final class Decision {
+        final Class<?> type;
+        final boolean handles;
+
+        Decision(Class<?> type, boolean handles) {
+            this.type = type;
+            this.handles = handles;
+        }
+    }
+}
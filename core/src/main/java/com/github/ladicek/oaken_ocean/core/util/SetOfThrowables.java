@@ -1,20 +1,18 @@
 package com.github.ladicek.oaken_ocean.core.util;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class SetOfThrowables {
-    public static final SetOfThrowables EMPTY = new SetOfThrowables(Collections.emptySet());
+    public static final SetOfThrowables EMPTY = new SetOfThrowables(Collections.emptyList());
 
     /**
      * Returns a set of throwables without any additional constraints.
      */
     public static SetOfThrowables create(List<Class<? extends Throwable>> classes) {
-        Set<Class<? extends Throwable>> set = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        set.addAll(classes);
-        return new SetOfThrowables(set);
+        return new SetOfThrowables(classes);
     }
 
     /**
@@ -22,27 +20,30 @@ public class SetOfThrowables {
      * or {@link Error}. This only makes sense for {@link org.eclipse.microprofile.faulttolerance.Retry Retry}.
      */
     public static SetOfThrowables withoutCustomThrowables(List<Class<? extends Throwable>> classes) {
-        Set<Class<? extends Throwable>> set = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        List<Class<? extends Throwable>> list = new ArrayList<>(classes.size());
         for (Class<? extends Throwable> clazz : classes) {
             if (Exception.class.isAssignableFrom(clazz) || Error.class.isAssignableFrom(clazz)) {
-                set.add(clazz);
+                list.add(clazz);
             }
         }
-        return new SetOfThrowables(set);
+        return new SetOfThrowables(list);
     }
 
-    private final Set<Class<? extends Throwable>> classes;
+    private final Class<?>[] classes;
 
-    private SetOfThrowables(Set<Class<? extends Throwable>> classes) {
-        this.classes = classes;
+    private SetOfThrowables(List<Class<? extends Throwable>> classes) {
+        this.classes = new LinkedHashSet<>(classes).toArray(new Class<?>[0]);
     }
 
     /**
      * Returns whether {@code searchedFor} is a subtype of (at least) one of the types in this set.
      * Note that subtyping is a reflexive relation, so a type is always a subtype of itself.
+     * <p>
+     * This performs a subtype check for each type in this set. Use {@link ExceptionClassifier}
+     * to avoid repeating them.
      */
     public boolean includes(Class<? extends Throwable> searchedFor) {
-        for (Class<? extends Throwable> clazz : classes) {
+        for (Class<?> clazz : classes) {
             if (clazz.isAssignableFrom(searchedFor)) {
                 return true;
             }
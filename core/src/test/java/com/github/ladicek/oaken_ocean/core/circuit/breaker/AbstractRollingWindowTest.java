@@ -2,6 +2,10 @@ package com.github.ladicek.oaken_ocean.core.circuit.breaker;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public abstract class AbstractRollingWindowTest {
@@ -26,5 +30,57 @@ public abstract class AbstractRollingWindowTest {
         assertThat(window.recordFailure()).isTrue();
     }
 
+    @Test
+    public void failureRatio() {
+        RollingWindow window = createRollingWindow(4, 2);
+
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+        window.recordFailure();
+        assertThat(window.failureRatio()).isEqualTo(1.0);
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.5);
+        window.recordSuccess();
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.25);
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void concurrentFailuresThenSuccesses() throws InterruptedException {
+        RollingWindow window = createRollingWindow(100, 2);
+
+        int threads = 8;
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threadList = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int j = 0; j < 1000; j++) {
+                    window.recordFailure();
+                }
+            });
+            thread.start();
+            threadList.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+
+        assertThat(window.recordFailure()).isTrue();
+
+        // fill the entire window with successes, no failure must be left over
+        for (int i = 0; i < 100; i++) {
+            window.recordSuccess();
+        }
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+    }
+
     protected abstract RollingWindow createRollingWindow(int size, int failureThreshold);
 }
@@ -0,0 +1,42 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CircuitBreakerConfigTest {
+    @Test
+    public void immutable() {
+        CircuitBreakerConfig config = CircuitBreakerConfig.DEFAULT.withRejectionMode(RejectionMode.SHARED);
+
+        assertThat(config).isNotSameAs(CircuitBreakerConfig.DEFAULT);
+        assertThat(config.rejectionMode).isEqualTo(RejectionMode.SHARED);
+        assertThat(CircuitBreakerConfig.DEFAULT.rejectionMode).isEqualTo(RejectionMode.STACK_TRACE);
+    }
+
+    @Test
+    public void chained() {
+        CircuitBreakerConfig config = CircuitBreakerConfig.DEFAULT
+                .withSlowCalls(100, 0.5)
+                .withMaxConcurrentTrials(3)
+                .withRollingWindow(RollingWindow.Factory.STRIPED);
+
+        assertThat(config.slowCallDurationInMillis).isEqualTo(100);
+        assertThat(config.slowCallRatio).isEqualTo(0.5);
+        assertThat(config.maxConcurrentTrials).isEqualTo(3);
+        assertThat(config.rollingWindowFactory).isSameAs(RollingWindow.Factory.STRIPED);
+        assertThat(config.openDelayBackoff).isSameAs(OpenDelayBackoff.NONE);
+        assertThat(config.stateStore).isSameAs(CircuitStateStore.NONE);
+    }
+
+    @Test
+    public void invalid() {
+        assertThatThrownBy(() -> CircuitBreakerConfig.DEFAULT.withSlowCalls(100, 1.5))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CircuitBreakerConfig.DEFAULT.withRejectionMode(null))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CircuitBreakerConfig.DEFAULT.withStateStore(null))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CircuitBreakerRegistryTest {
+    private static final SetOfThrowables testException = SetOfThrowables.create(Collections.singletonList(TestException.class));
+
+    private TestStopwatch stopwatch;
+    private AtomicInteger created;
+    private CircuitBreakerRegistry<String, String> registry;
+
+    @Before
+    public void setUp() {
+        stopwatch = new TestStopwatch();
+        created = new AtomicInteger(0);
+        registry = new CircuitBreakerRegistry<>(key -> {
+            created.incrementAndGet();
+            return new CircuitBreaker<>(() -> {
+                if (key.startsWith("failing")) {
+                    throw new TestException();
+                }
+                return key;
+            }, key, testException, 1000, 2, 0.5, 1, stopwatch);
+        }, 3, 1000, stopwatch);
+    }
+
+    @Test
+    public void lazyCreation() throws Exception {
+        assertThat(registry.size()).isEqualTo(0);
+
+        CircuitBreaker<String> foo = registry.get("foo");
+        assertThat(foo.call()).isEqualTo("foo");
+        assertThat(registry.get("foo")).isSameAs(foo);
+        assertThat(registry.get("bar").call()).isEqualTo("bar");
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    public void idleEviction() {
+        CircuitBreaker<String> foo = registry.get("foo");
+        registry.get("bar");
+        stopwatch.setCurrentValue(500);
+        registry.get("bar");
+        stopwatch.setCurrentValue(1200);
+
+        registry.evictIdle();
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.get("foo")).isNotSameAs(foo);
+        assertThat(created).hasValue(3);
+    }
+
+    @Test
+    public void evictedCircuitBreakerIsClosed() {
+        InMemoryCircuitStateStore store = new InMemoryCircuitStateStore(Runnable::run);
+        CircuitBreakerRegistry<String, String> registry = new CircuitBreakerRegistry<>(key -> new CircuitBreaker<>(
+                () -> key, key, testException, 1000, 2, 0.5, 1, CircuitBreakerConfig.DEFAULT.withStateStore(store),
+                stopwatch), 3, 1000, stopwatch);
+        CircuitBreaker<String> foo = registry.get("foo");
+        stopwatch.setCurrentValue(1200);
+        registry.evictIdle();
+
+        store.newPeer().publish(new CircuitStateEvent("foo", CircuitBreakerState.OPEN,
+                System.currentTimeMillis(), 1000, 0.5));
+        assertThat(foo.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        assertThat(registry.get("foo").currentState()).isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    public void sizeEviction() {
+        registry.get("foo1");
+        stopwatch.setCurrentValue(200);
+        registry.get("foo2");
+        stopwatch.setCurrentValue(400);
+        registry.get("foo3");
+        stopwatch.setCurrentValue(600);
+        registry.get("foo1");
+        stopwatch.setCurrentValue(800);
+        registry.get("foo4");
+
+        // foo2 was least recently accessed
+        assertThat(registry.size()).isEqualTo(3);
+        registry.get("foo1");
+        registry.get("foo3");
+        registry.get("foo4");
+        assertThat(created).hasValue(4);
+        registry.get("foo2");
+        assertThat(created).hasValue(5);
+    }
+
+    @Test
+    public void openCircuitBreakersAreNotEvicted() {
+        CircuitBreaker<String> failing = registry.get("failing");
+        assertThatThrownBy(failing::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(failing::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(failing::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+
+        stopwatch.setCurrentValue(500);
+        registry.get("foo1");
+        registry.get("foo2");
+        registry.get("foo3");
+        stopwatch.setCurrentValue(800);
+        registry.get("foo4");
+        stopwatch.setCurrentValue(5000);
+        registry.evictIdle();
+
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.get("failing")).isSameAs(failing);
+    }
+
+    @Test
+    public void evictionIsAmortizedWhenNothingCanBeEvicted() {
+        AtomicInteger stateChecks = new AtomicInteger(0);
+        CircuitBreakerRegistry<String, String> registry = new CircuitBreakerRegistry<>(key -> new CircuitBreaker<String>(
+                () -> key, key, testException, 1000, 2, 0.5, 1, stopwatch) {
+            @Override
+            CircuitBreakerState currentState() {
+                stateChecks.incrementAndGet();
+                return CircuitBreakerState.OPEN;
+            }
+        }, 10, 1000, stopwatch);
+
+        for (int i = 0; i < 100; i++) {
+            registry.get("foo" + i);
+        }
+
+        assertThat(registry.size()).isEqualTo(100);
+        // scanning on each creation above `maxSize` would check the state ~5000 times
+        assertThat(stateChecks.get()).isLessThan(1000);
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> new CircuitBreakerRegistry<String, String>(null, 3, 1000, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CircuitBreakerRegistry<String, String>(key -> null, 0, 1000, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CircuitBreakerRegistry<String, String>(key -> null, 3, 0, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,16 +1,29 @@
 package com.github.ladicek.oaken_ocean.core.circuit.breaker;
 
+import com.github.ladicek.oaken_ocean.core.retry.Jitter;
 import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
 import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
 import com.github.ladicek.oaken_ocean.core.util.TestException;
+import com.github.ladicek.oaken_ocean.core.util.TestThread;
+import com.github.ladicek.oaken_ocean.core.util.barrier.Barrier;
 import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static com.github.ladicek.oaken_ocean.core.util.TestThread.runOnTestThread;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.within;
 
 public class CircuitBreakerTest {
     private static final SetOfThrowables exception = SetOfThrowables.create(Collections.singletonList(Exception.class));
@@ -110,4 +123,378 @@ public class CircuitBreakerTest {
         // circuit breaker is closed
         assertThat(cb.call()).isEqualTo("foobar5");
     }
+
+    @Test
+    public void stripedRollingWindow() throws Exception {
+        TestAction<String> action = TestAction.create(
+                () -> "foobar1",
+                TestException::doThrow,
+                TestException::doThrow,
+                () -> "foobar2",
+                // open
+                () -> "foobar3",
+                () -> "foobar4",
+                () -> "foobar5"
+        );
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 4, 0.5, 2,
+                CircuitBreakerConfig.DEFAULT.withRollingWindow(RollingWindow.Factory.STRIPED), stopwatch);
+
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThat(cb.call()).isEqualTo("foobar2");
+        // circuit breaker is open
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1500);
+        assertThat(cb.call()).isEqualTo("foobar3");
+        // circuit breaker is half-open
+        assertThat(cb.call()).isEqualTo("foobar4");
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar5");
+    }
+
+    @Test
+    public void timeBasedRollingWindow() throws Exception {
+        TestAction<String> action = TestAction.create(
+                TestException::doThrow,
+                TestException::doThrow,
+                () -> "foobar1",
+                () -> "foobar2",
+                TestException::doThrow,
+                TestException::doThrow,
+                // open
+                () -> "foobar3"
+        );
+        CircuitBreakerConfig config = CircuitBreakerConfig.DEFAULT
+                .withRollingWindow(RollingWindow.Factory.timeBased(10, 100, stopwatch));
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 4, 0.5, 1, config, stopwatch);
+
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        stopwatch.setCurrentValue(1500);
+        // the failures are out of the window now
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThat(cb.call()).isEqualTo("foobar2");
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        stopwatch.setCurrentValue(0);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1500);
+        assertThat(cb.call()).isEqualTo("foobar3");
+        // circuit breaker is closed
+    }
+
+    @Test
+    public void slowCalls() throws Exception {
+        TestAction<String> action = TestAction.create(
+                () -> "foobar1",
+                () -> {
+                    stopwatch.setCurrentValue(200);
+                    return "foobar2";
+                },
+                () -> {
+                    stopwatch.setCurrentValue(0);
+                    return "foobar3";
+                },
+                () -> {
+                    stopwatch.setCurrentValue(200);
+                    throw new RuntimeException(); // treated as success, but still slow
+                },
+                // open
+                () -> "foobar4",
+                // open
+                () -> {
+                    stopwatch.setCurrentValue(0);
+                    return "foobar5";
+                },
+                () -> "foobar6"
+        );
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 4, 0.5, 1, CircuitBreakerConfig.DEFAULT.withSlowCalls(100, 0.5), stopwatch);
+
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThat(cb.call()).isEqualTo("foobar2");
+        assertThat(cb.call()).isEqualTo("foobar3");
+        assertThat(cb.metrics().slowCallRatio()).isCloseTo(0.333, within(0.001));
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(RuntimeException.class);
+        // circuit breaker is open
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1500);
+        assertThat(cb.call()).isEqualTo("foobar4"); // slow trial invocation
+        // circuit breaker is open, but the stopwatch says the delay has already elapsed
+        assertThat(cb.call()).isEqualTo("foobar5");
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar6");
+
+        assertThat(cb.metrics().slow()).isEqualTo(3);
+        assertThat(cb.metrics().timesOpened()).isEqualTo(2);
+        assertThat(cb.metrics().timesClosed()).isEqualTo(1);
+    }
+
+    @Test
+    public void limitedConcurrentTrials() throws Exception {
+        Barrier startBarrier = Barrier.interruptible();
+        Barrier endBarrier = Barrier.interruptible();
+        TestAction<String> action = TestAction.create(
+                TestException::doThrow,
+                TestException::doThrow,
+                // open
+                () -> {
+                    startBarrier.open();
+                    endBarrier.await();
+                    return "foobar1";
+                },
+                () -> "foobar2",
+                () -> "foobar3"
+        );
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 2, 0.5, 2, CircuitBreakerConfig.DEFAULT.withMaxConcurrentTrials(1), stopwatch);
+
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1500);
+        TestThread<String> trial = runOnTestThread(cb);
+        startBarrier.await();
+        // circuit breaker is half-open, a trial invocation is in flight
+        assertThatThrownBy(cb::call)
+                .isExactlyInstanceOf(CircuitBreakerOpenException.class)
+                .hasMessage("test action circuit breaker is half-open");
+        endBarrier.open();
+        assertThat(trial.await()).isEqualTo("foobar1");
+        assertThat(cb.call()).isEqualTo("foobar2");
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar3");
+    }
+
+    @Test
+    public void stacklessRejection() throws Exception {
+        CircuitBreaker<String> cb = new CircuitBreaker<>(TestException::doThrow, "test action", testException,
+                1000, 2, 0.5, 2, CircuitBreakerConfig.DEFAULT.withRejectionMode(RejectionMode.STACKLESS), stopwatch);
+
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        Throwable rejection1 = catchThrowable(cb::call);
+        Throwable rejection2 = catchThrowable(cb::call);
+        assertThat(rejection1)
+                .isInstanceOf(CircuitBreakerOpenException.class)
+                .hasMessage("test action circuit breaker is open");
+        assertThat(rejection1.getStackTrace()).isEmpty();
+        assertThat(rejection2).isNotSameAs(rejection1);
+    }
+
+    @Test
+    public void sharedRejection() throws Exception {
+        CircuitBreaker<String> cb = new CircuitBreaker<>(TestException::doThrow, "test action", testException,
+                1000, 2, 0.5, 2, CircuitBreakerConfig.DEFAULT.withRejectionMode(RejectionMode.SHARED), stopwatch);
+
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        Throwable rejection1 = catchThrowable(cb::call);
+        Throwable rejection2 = catchThrowable(cb::call);
+        assertThat(rejection1)
+                .isInstanceOf(CircuitBreakerOpenException.class)
+                .hasMessage("test action circuit breaker is open");
+        assertThat(rejection1.getStackTrace()).isEmpty();
+        assertThat(rejection2).isSameAs(rejection1);
+        assertThatThrownBy(() -> rejection1.initCause(new TestException()))
+                .isExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void tryCall() throws Exception {
+        TestAction<String> action = TestAction.create(
+                () -> "foobar1",
+                TestException::doThrow,
+                // open
+                () -> "foobar2"
+        );
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 2, 0.5, 1, stopwatch);
+
+        // circuit breaker is closed
+        CallResult<String> result = cb.tryCall();
+        assertThat(result.isRejected()).isFalse();
+        assertThat(result.value()).isEqualTo("foobar1");
+        assertThatThrownBy(cb::tryCall).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        result = cb.tryCall();
+        assertThat(result.isRejected()).isTrue();
+        assertThatThrownBy(result::value).isExactlyInstanceOf(IllegalStateException.class);
+        stopwatch.setCurrentValue(1500);
+        result = cb.tryCall();
+        assertThat(result.isRejected()).isFalse();
+        assertThat(result.value()).isEqualTo("foobar2");
+        // circuit breaker is closed
+    }
+
+    @Test
+    public void openDelayBackoff() throws Exception {
+        TestAction<String> action = TestAction.create(
+                TestException::doThrow,
+                TestException::doThrow,
+                // open
+                TestException::doThrow,
+                // open
+                TestException::doThrow,
+                // open
+                () -> "foobar1",
+                // closed
+                TestException::doThrow,
+                TestException::doThrow,
+                // open
+                () -> "foobar2"
+        );
+        CircuitBreakerConfig config = CircuitBreakerConfig.DEFAULT
+                .withOpenDelayBackoff(new OpenDelayBackoff(2.0, 3000, Jitter.ZERO));
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 2, 0.5, 1, config, stopwatch);
+
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open for 1000 millis
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1000);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open for 2000 millis
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1999);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(2000);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open for 3000 millis (capped)
+        stopwatch.setCurrentValue(2999);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(3000);
+        assertThat(cb.call()).isEqualTo("foobar1");
+        // circuit breaker is closed
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open for 1000 millis again
+        stopwatch.setCurrentValue(999);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(1000);
+        assertThat(cb.call()).isEqualTo("foobar2");
+    }
+
+    @Test
+    public void customRollingWindow_failureRatioUnknown() throws Exception {
+        // implements only the methods that existed before `failureRatio()` was added
+        RollingWindow.Factory factory = (size, failureThreshold) -> new RollingWindow() {
+            @Override
+            public boolean recordSuccess() {
+                return false;
+            }
+
+            @Override
+            public boolean recordFailure() {
+                return false;
+            }
+        };
+        CircuitBreaker<String> cb = new CircuitBreaker<>(() -> "foobar", "test action", testException,
+                1000, 2, 0.5, 1, CircuitBreakerConfig.DEFAULT.withRollingWindow(factory), stopwatch);
+
+        assertThat(cb.call()).isEqualTo("foobar");
+        assertThat(cb.metrics().failureRatio()).isNaN();
+    }
+
+    @Test
+    public void metrics() throws Exception {
+        TestAction<String> action = TestAction.create(
+                () -> "foobar1",
+                () -> { throw new RuntimeException(); },
+                TestException::doThrow,
+                TestException::doThrow,
+                // open
+                TestException::doThrow,
+                // open
+                () -> "foobar2",
+                () -> "foobar3"
+        );
+        CircuitBreaker<String> cb = new CircuitBreaker<>(action, "test action", testException,
+                1000, 4, 0.5, 2, stopwatch);
+        CircuitBreakerMetrics metrics = cb.metrics();
+
+        assertThat(metrics.state()).isEqualTo(CircuitBreakerState.CLOSED);
+        assertThat(metrics.failureRatio()).isEqualTo(0.0);
+
+        // circuit breaker is closed
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(RuntimeException.class); // treated as success
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThat(metrics.failureRatio()).isCloseTo(0.333, within(0.001));
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        assertThat(metrics.state()).isEqualTo(CircuitBreakerState.OPEN);
+        assertThat(metrics.failureRatio()).isNaN();
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        stopwatch.setCurrentValue(500);
+        assertThat(metrics.openTimeInMillis()).isEqualTo(500);
+        stopwatch.setCurrentValue(1500);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        // circuit breaker is open
+        stopwatch.setCurrentValue(1000);
+        assertThat(metrics.openTimeInMillis()).isEqualTo(2500);
+        assertThat(cb.call()).isEqualTo("foobar2");
+        // circuit breaker is half-open
+        assertThat(metrics.state()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+        assertThat(cb.call()).isEqualTo("foobar3");
+        // circuit breaker is closed
+        assertThat(metrics.state()).isEqualTo(CircuitBreakerState.CLOSED);
+
+        assertThat(metrics.acceptedInClosed()).isEqualTo(4);
+        assertThat(metrics.acceptedInHalfOpen()).isEqualTo(3);
+        assertThat(metrics.rejected()).isEqualTo(2);
+        assertThat(metrics.succeeded()).isEqualTo(4);
+        assertThat(metrics.failed()).isEqualTo(3);
+        assertThat(metrics.timesOpened()).isEqualTo(2);
+        assertThat(metrics.timesHalfOpened()).isEqualTo(2);
+        assertThat(metrics.timesClosed()).isEqualTo(1);
+        assertThat(metrics.openTimeInMillis()).isEqualTo(2500);
+    }
+
+    @Test
+    public void concurrentFailures() throws Exception {
+        int threads = 16;
+        CountDownLatch enteredLatch = new CountDownLatch(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        CircuitBreaker<String> cb = new CircuitBreaker<>(() -> {
+            enteredLatch.countDown();
+            startLatch.await();
+            throw new TestException();
+        }, "test action", testException, 1000, 4, 0.5, 2, stopwatch);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(cb));
+            }
+            enteredLatch.await();
+            startLatch.countDown();
+            for (Future<String> future : futures) {
+                assertThatThrownBy(future::get).hasCauseExactlyInstanceOf(TestException.class);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        // circuit breaker is open
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+    }
 }
@@ -0,0 +1,184 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InMemoryCircuitStateStoreTest {
+    private static final SetOfThrowables testException = SetOfThrowables.create(Collections.singletonList(TestException.class));
+
+    // transitions are delivered synchronously, to make the tests deterministic
+    private final InMemoryCircuitStateStore node1 = new InMemoryCircuitStateStore(Runnable::run);
+    private final InMemoryCircuitStateStore node2 = node1.newPeer();
+
+    @Test
+    public void eventsAreDeliveredToOtherNodes() {
+        List<CircuitStateEvent> events1 = new ArrayList<>();
+        List<CircuitStateEvent> events2 = new ArrayList<>();
+        node1.subscribe("foo", events1::add);
+        node2.subscribe("foo", events2::add);
+        node2.subscribe("bar", event -> { throw new AssertionError("Unexpected event " + event); });
+
+        CircuitStateEvent event = new CircuitStateEvent("foo", CircuitBreakerState.OPEN, 1000, 5000, 0.5);
+        node1.publish(event);
+
+        assertThat(events1).isEmpty();
+        assertThat(events2).containsExactly(event);
+    }
+
+    @Test
+    public void unsubscribedListenerIsNotCalled() {
+        List<CircuitStateEvent> events = new ArrayList<>();
+        Consumer<CircuitStateEvent> listener = events::add;
+        node2.subscribe("foo", listener);
+        node2.unsubscribe("foo", listener);
+        node2.unsubscribe("bar", listener);
+
+        node1.publish(new CircuitStateEvent("foo", CircuitBreakerState.OPEN, 1000, 5000, 0.5));
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void closedCircuitBreakerDoesntAdoptTransitions() {
+        CircuitBreaker<String> cb = circuitBreaker(node2, new TestStopwatch());
+        cb.close();
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.OPEN,
+                System.currentTimeMillis(), 10_000, 0.5));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+    }
+
+    @Test
+    public void lastEventIsReplayedToNewSubscribers() {
+        CircuitStateEvent event = new CircuitStateEvent("foo", CircuitBreakerState.OPEN, 1000, 5000, 0.5);
+        node1.publish(event);
+
+        List<CircuitStateEvent> events1 = new ArrayList<>();
+        List<CircuitStateEvent> events3 = new ArrayList<>();
+        node1.subscribe("foo", events1::add);
+        node1.newPeer().subscribe("foo", events3::add);
+
+        assertThat(events1).isEmpty();
+        assertThat(events3).containsExactly(event);
+    }
+
+    @Test
+    public void circuitBreakersConverge() throws Exception {
+        TestStopwatch stopwatch1 = new TestStopwatch();
+        CircuitBreaker<String> cb1 = circuitBreaker(node1, stopwatch1,
+                TestException::doThrow, TestException::doThrow, () -> "foobar1", () -> "foobar2");
+        CircuitBreaker<String> cb2 = circuitBreaker(node2, new TestStopwatch(), () -> "foobar3");
+
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThat(cb2.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+        assertThatThrownBy(cb2::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+
+        stopwatch1.setCurrentValue(10_000);
+        assertThat(cb1.call()).isEqualTo("foobar1");
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+        assertThat(cb2.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+
+        assertThat(cb1.call()).isEqualTo("foobar2");
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        assertThat(cb2.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        assertThat(cb2.call()).isEqualTo("foobar3");
+
+        // adopted transitions are not published again
+        assertThat(cb1.metrics().timesOpened()).isEqualTo(1);
+        assertThat(cb1.metrics().timesClosed()).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredOpenStateIsIgnored() {
+        CircuitBreaker<String> cb = circuitBreaker(node2, new TestStopwatch());
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.OPEN,
+                System.currentTimeMillis() - 20_000, 10_000, 0.5));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+    }
+
+    @Test
+    public void halfOpenCircuitBreakerIgnoresOtherHalfOpen() throws Exception {
+        TestStopwatch stopwatch = new TestStopwatch();
+        CircuitBreaker<String> cb = circuitBreaker(node2, stopwatch, TestException::doThrow, TestException::doThrow,
+                () -> "foobar1");
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        stopwatch.setCurrentValue(10_000);
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.HALF_OPEN,
+                System.currentTimeMillis(), 10_000, Double.NaN));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.OPEN,
+                System.currentTimeMillis(), 10_000, Double.NaN));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    public void openDelayIsBoundedByLocalConfiguration() throws Exception {
+        TestStopwatch stopwatch = new TestStopwatch();
+        CircuitBreaker<String> cb = circuitBreaker(node2, stopwatch, () -> "foobar1");
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.OPEN,
+                System.currentTimeMillis(), 1_000_000, 0.5));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+
+        stopwatch.setCurrentValue(10_000);
+        assertThat(cb.call()).isEqualTo("foobar1");
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+    }
+
+    @Test
+    public void adoptedCloseRecordsOpenTime() {
+        TestStopwatch stopwatch = new TestStopwatch();
+        CircuitBreaker<String> cb = circuitBreaker(node2, stopwatch, TestException::doThrow, TestException::doThrow);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+
+        stopwatch.setCurrentValue(3000);
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.CLOSED,
+                System.currentTimeMillis(), 0, 0.0));
+        assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        assertThat(cb.metrics().timesClosed()).isEqualTo(1);
+        assertThat(cb.metrics().openTimeInMillis()).isEqualTo(3000);
+    }
+
+    @Test
+    public void adoptedOpenExtensionKeepsOpenTime() {
+        TestStopwatch stopwatch = new TestStopwatch();
+        CircuitBreaker<String> cb = circuitBreaker(node2, stopwatch, TestException::doThrow, TestException::doThrow);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+
+        stopwatch.setCurrentValue(3000);
+        node1.publish(new CircuitStateEvent("test action", CircuitBreakerState.OPEN,
+                System.currentTimeMillis(), 9000, 0.5));
+        assertThat(cb.metrics().openTimeInMillis()).isEqualTo(3000);
+
+        // the local delay of 10 seconds is over, but the adopted one isn't
+        stopwatch.setCurrentValue(11_000);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(cb.metrics().openTimeInMillis()).isEqualTo(11_000);
+    }
+
+    @SafeVarargs
+    private static CircuitBreaker<String> circuitBreaker(CircuitStateStore store, TestStopwatch stopwatch,
+                                                         Callable<String>... actions) {
+        return new CircuitBreaker<>(TestAction.create(actions), "test action", testException,
+                10_000, 2, 0.5, 2, CircuitBreakerConfig.DEFAULT.withStateStore(store), stopwatch);
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+public class LockFreeRollingWindowTest extends AbstractRollingWindowTest {
+    @Override
+    protected RollingWindow createRollingWindow(int size, int failureThreshold) {
+        return new LockFreeRollingWindow(size, failureThreshold);
+    }
+}
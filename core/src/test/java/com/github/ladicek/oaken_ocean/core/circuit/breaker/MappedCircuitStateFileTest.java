@@ -0,0 +1,222 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static com.github.ladicek.oaken_ocean.core.util.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// multiple instances of MappedCircuitStateFile for the same path stand in for multiple processes
+public class MappedCircuitStateFileTest {
+    private static final SetOfThrowables testException = SetOfThrowables.create(Collections.singletonList(TestException.class));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private List<MappedCircuitStateFile> files = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        path = folder.getRoot().toPath().resolve("circuit-breakers");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (MappedCircuitStateFile file : files) {
+            file.close();
+        }
+    }
+
+    @Test
+    public void openStateIsShared() throws Exception {
+        CircuitBreaker<String> cb1 = circuitBreaker(open(10), "test action", new TestStopwatch(),
+                TestException::doThrow, TestException::doThrow);
+        CircuitBreaker<String> cb2 = circuitBreaker(open(10), "test action", new TestStopwatch());
+        CircuitBreaker<String> unrelated = circuitBreaker(open(10), "unrelated action", new TestStopwatch(),
+                () -> "foobar");
+
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+
+        await("second circuit breaker open", () -> cb2.currentState() == CircuitBreakerState.OPEN);
+        // the action of the second circuit breaker is never called
+        assertThatThrownBy(cb2::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(cb2.metrics().timesOpened()).isEqualTo(1);
+
+        assertThat(unrelated.call()).isEqualTo("foobar");
+    }
+
+    @Test
+    public void transitionsDontWaitForFileLock() throws Exception {
+        MappedCircuitStateFile file = open(10);
+        CircuitBreaker<String> cb = circuitBreaker(file, "test action", new TestStopwatch(),
+                TestException::doThrow, TestException::doThrow);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread lockHolder = new Thread(() -> {
+            try {
+                file.locked(0, MappedCircuitStateFile.HEADER_SIZE, false, () -> {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        lockHolder.start();
+        try {
+            locked.await();
+            // the second call opens the circuit breaker and publishes the transition while the file is locked
+            assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+            assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+            assertThat(cb.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+        } finally {
+            release.countDown();
+            lockHolder.join();
+        }
+
+        CircuitBreaker<String> other = circuitBreaker(open(10), "test action", new TestStopwatch());
+        await("transition written", () -> other.currentState() == CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    public void restartedProcessStartsOpen() throws Exception {
+        MappedCircuitStateFile file = MappedCircuitStateFile.open(path, 10);
+        CircuitBreaker<String> cb1 = circuitBreaker(file, "test action", new TestStopwatch(),
+                TestException::doThrow, TestException::doThrow);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        file.close();
+
+        CircuitBreaker<String> cb2 = circuitBreaker(open(10), "test action", new TestStopwatch());
+        assertThat(cb2.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+        assertThatThrownBy(cb2::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    public void halfOpenAndClosedStatesAreShared() throws Exception {
+        TestStopwatch stopwatch1 = new TestStopwatch();
+        CircuitBreaker<String> cb1 = circuitBreaker(open(10), "test action", stopwatch1,
+                TestException::doThrow, TestException::doThrow, () -> "foobar1", () -> "foobar2");
+        CircuitBreaker<String> cb2 = circuitBreaker(open(10), "test action", new TestStopwatch(), () -> "foobar3");
+
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        await("second circuit breaker open", () -> cb2.currentState() == CircuitBreakerState.OPEN);
+
+        stopwatch1.setCurrentValue(10_000);
+        assertThat(cb1.call()).isEqualTo("foobar1");
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+
+        // while the first circuit breaker performs trial invocations, a new one starts OPEN
+        MappedCircuitStateFile file3 = open(10);
+        await("HALF_OPEN published", () -> {
+            SharedCircuitState.Snapshot snapshot = file3.slot("test action").read();
+            return snapshot != null && snapshot.state == CircuitBreakerState.HALF_OPEN;
+        });
+        CircuitBreaker<String> cb3 = circuitBreaker(file3, "test action", new TestStopwatch());
+        assertThat(cb3.currentState()).isEqualTo(CircuitBreakerState.OPEN);
+
+        assertThat(cb1.call()).isEqualTo("foobar2");
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        await("second circuit breaker closed", () -> cb2.currentState() == CircuitBreakerState.CLOSED);
+        await("third circuit breaker closed", () -> cb3.currentState() == CircuitBreakerState.CLOSED);
+        assertThat(cb2.call()).isEqualTo("foobar3");
+    }
+
+    @Test
+    public void existingFileKeepsSlotCount() throws IOException {
+        MappedCircuitStateFile file1 = open(2);
+        file1.subscribe("foo", event -> {});
+        file1.subscribe("bar", event -> {});
+        file1.subscribe("foo", event -> {});
+        assertThatThrownBy(() -> file1.subscribe("baz", event -> {})).isExactlyInstanceOf(IllegalStateException.class);
+
+        MappedCircuitStateFile file2 = open(10);
+        assertThatThrownBy(() -> file2.subscribe("baz", event -> {})).isExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void releasedSlotIsReused() throws IOException {
+        MappedCircuitStateFile file1 = open(1);
+        MappedCircuitStateFile file2 = open(1);
+        Consumer<CircuitStateEvent> listener = event -> {};
+        file1.subscribe("foo", listener);
+        file2.subscribe("foo", listener);
+        file1.unsubscribe("foo", listener);
+        // still claimed by the second file
+        assertThatThrownBy(() -> file1.subscribe("bar", event -> {})).isExactlyInstanceOf(IllegalStateException.class);
+
+        file2.close();
+        file1.subscribe("bar", event -> {});
+    }
+
+    @Test
+    public void releasedOpenSlotIsKept() throws Exception {
+        MappedCircuitStateFile file = open(1);
+        CircuitBreaker<String> cb = circuitBreaker(file, "foo", new TestStopwatch(),
+                TestException::doThrow, TestException::doThrow);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb::call).isExactlyInstanceOf(TestException.class);
+        file.close(); // writes the pending OPEN transition and releases the slot
+
+        MappedCircuitStateFile restarted = open(1);
+        assertThatThrownBy(() -> restarted.subscribe("bar", event -> {}))
+                .isExactlyInstanceOf(IllegalStateException.class);
+        assertThat(circuitBreaker(restarted, "foo", new TestStopwatch()).currentState())
+                .isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    public void invalidName() throws IOException {
+        MappedCircuitStateFile file = open(10);
+        assertThatThrownBy(() -> file.subscribe("", event -> {})).isExactlyInstanceOf(IllegalArgumentException.class);
+        String tooLong = String.join("", Collections.nCopies(MappedCircuitStateFile.MAX_NAME_LENGTH + 1, "x"));
+        assertThatThrownBy(() -> file.subscribe(tooLong, event -> {})).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void notAStateFile() throws IOException {
+        Files.write(path, "hello world".getBytes());
+        assertThatThrownBy(() -> open(10)).isExactlyInstanceOf(IOException.class);
+    }
+
+    private MappedCircuitStateFile open(int slotCount) throws IOException {
+        MappedCircuitStateFile file = MappedCircuitStateFile.open(path, slotCount, 1);
+        files.add(file);
+        return file;
+    }
+
+    @SafeVarargs
+    private static CircuitBreaker<String> circuitBreaker(CircuitStateStore store, String description,
+                                                         TestStopwatch stopwatch, Callable<String>... actions) {
+        return new CircuitBreaker<>(TestAction.create(actions), description, testException,
+                10_000, 2, 0.5, 2, CircuitBreakerConfig.DEFAULT.withStateStore(store), stopwatch);
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.retry.FixedJitter;
+import com.github.ladicek.oaken_ocean.core.retry.Jitter;
+import com.github.ladicek.oaken_ocean.core.retry.RandomJitter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OpenDelayBackoffTest {
+    @Test
+    public void none() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(OpenDelayBackoff.NONE.delay(1000, i)).isEqualTo(1000);
+        }
+        assertThat(OpenDelayBackoff.NONE.delay(1000, Integer.MAX_VALUE)).isEqualTo(1000);
+    }
+
+    @Test
+    public void exponential() {
+        OpenDelayBackoff backoff = new OpenDelayBackoff(2.0, 10_000, Jitter.ZERO);
+        assertThat(backoff.delay(1000, 0)).isEqualTo(1000);
+        assertThat(backoff.delay(1000, 1)).isEqualTo(2000);
+        assertThat(backoff.delay(1000, 2)).isEqualTo(4000);
+        assertThat(backoff.delay(1000, 3)).isEqualTo(8000);
+        assertThat(backoff.delay(1000, 4)).isEqualTo(10_000);
+        assertThat(backoff.delay(1000, Integer.MAX_VALUE)).isEqualTo(10_000);
+    }
+
+    @Test
+    public void maxDelayLowerThanDelay() {
+        OpenDelayBackoff backoff = new OpenDelayBackoff(2.0, 500, Jitter.ZERO);
+        assertThat(backoff.delay(1000, 0)).isEqualTo(1000);
+        assertThat(backoff.delay(1000, 5)).isEqualTo(1000);
+    }
+
+    @Test
+    public void jitter() {
+        OpenDelayBackoff backoff = new OpenDelayBackoff(2.0, 10_000, new RandomJitter(100));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(backoff.delay(1000, 1)).isBetween(1900L, 2100L);
+            assertThat(backoff.delay(50, 0)).isBetween(0L, 150L);
+        }
+    }
+
+    @Test
+    public void noOverflow() {
+        OpenDelayBackoff backoff = new OpenDelayBackoff(10.0, Long.MAX_VALUE, new FixedJitter(Long.MAX_VALUE));
+        assertThat(backoff.delay(1000, 100)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> new OpenDelayBackoff(0.5, 1000, Jitter.ZERO))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OpenDelayBackoff(2.0, -1, Jitter.ZERO))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OpenDelayBackoff(2.0, 1000, null))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void maxDelay() {
+        assertThat(OpenDelayBackoff.NONE.maxDelay(1000)).isEqualTo(1000);
+        assertThat(new OpenDelayBackoff(2.0, 10_000, Jitter.ZERO).maxDelay(1000)).isEqualTo(10_000);
+        assertThat(new OpenDelayBackoff(2.0, 500, Jitter.ZERO).maxDelay(1000)).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// doesn't extend AbstractRollingWindowTest, because the striped window only approximates the failure count
+public class StripedRollingWindowTest {
+    @Test
+    public void specScenario1() {
+        RollingWindow window = new StripedRollingWindow(4, 2, 1, 1);
+
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordSuccess()).isTrue();
+    }
+
+    @Test
+    public void previousBlockIsAssumedUniform() {
+        RollingWindow window = new StripedRollingWindow(4, 2, 1, 1);
+
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordSuccess()).isTrue(); // first block: 2 failures
+        assertThat(window.recordSuccess()).isFalse(); // 0 + 2 * 3/4 failures
+        assertThat(window.recordFailure()).isTrue(); // 1 + 2 * 2/4 failures, exact count would be 1
+    }
+
+    @Test
+    public void failureRatio() {
+        RollingWindow window = new StripedRollingWindow(4, 2, 1, 1);
+
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+        window.recordFailure();
+        assertThat(window.failureRatio()).isEqualTo(1.0);
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.5);
+        window.recordSuccess();
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.25);
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.1875); // (0 + 1 * 3/4) / 4
+    }
+
+    @Test
+    public void onlySuccesses() {
+        RollingWindow window = new StripedRollingWindow(10, 1, 1, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(window.recordSuccess()).isFalse();
+        }
+    }
+
+    @Test
+    public void decisionIsMadeOncePerStride() {
+        RollingWindow window = new StripedRollingWindow(4, 2, 1, 4);
+
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+    }
+
+    @Test
+    public void concurrentFailures() throws InterruptedException {
+        RollingWindow window = new StripedRollingWindow(1000, 500, 8, 16);
+
+        int threads = 8;
+        AtomicBoolean failureThresholdReached = new AtomicBoolean(false);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threadList = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (window.recordFailure()) {
+                        failureThresholdReached.set(true);
+                    }
+                }
+            });
+            thread.start();
+            threadList.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+
+        assertThat(failureThresholdReached).isTrue();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimeBasedRollingWindowTest {
+    private TestStopwatch stopwatch;
+
+    @Before
+    public void setUp() {
+        stopwatch = new TestStopwatch();
+    }
+
+    @Test
+    public void minimumNumberOfInvocations() {
+        RollingWindow window = RollingWindow.Factory.timeBased(10, 100, stopwatch).create(4, 2);
+
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+    }
+
+    @Test
+    public void failureRatioThreshold() {
+        RollingWindow window = RollingWindow.Factory.timeBased(10, 100, stopwatch).create(4, 2);
+
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordFailure()).isFalse(); // 1/4
+        assertThat(window.recordSuccess()).isFalse(); // 1/5
+        assertThat(window.recordFailure()).isFalse(); // 2/6
+        assertThat(window.recordFailure()).isFalse(); // 3/7
+        assertThat(window.recordFailure()).isTrue(); // 4/8
+    }
+
+    @Test
+    public void oldBucketsExpire() {
+        RollingWindow window = RollingWindow.Factory.timeBased(10, 100, stopwatch).create(4, 2);
+
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        stopwatch.setCurrentValue(500);
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordSuccess()).isTrue(); // 2/4
+        stopwatch.setCurrentValue(1050);
+        // the failures are out of the window now
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordFailure()).isFalse(); // 1/4
+        stopwatch.setCurrentValue(2100);
+        // nothing is left in the window
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+    }
+
+    @Test
+    public void reusedBucketIsReset() {
+        RollingWindow window = RollingWindow.Factory.timeBased(2, 100, stopwatch).create(2, 1);
+
+        assertThat(window.recordFailure()).isFalse();
+        assertThat(window.recordFailure()).isTrue();
+        stopwatch.setCurrentValue(200); // same bucket index as 0
+        assertThat(window.recordSuccess()).isFalse();
+        assertThat(window.recordSuccess()).isFalse();
+    }
+
+    @Test
+    public void failureRatio() {
+        RollingWindow window = RollingWindow.Factory.timeBased(10, 100, stopwatch).create(4, 2);
+
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+        window.recordFailure();
+        assertThat(window.failureRatio()).isEqualTo(1.0);
+        stopwatch.setCurrentValue(500);
+        window.recordSuccess();
+        assertThat(window.failureRatio()).isEqualTo(0.5);
+        stopwatch.setCurrentValue(1050);
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+        stopwatch.setCurrentValue(2000);
+        assertThat(window.failureRatio()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> RollingWindow.Factory.timeBased(0, 100, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RollingWindow.Factory.timeBased(10, 0, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RollingWindow.Factory.timeBased(10, 100, null))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
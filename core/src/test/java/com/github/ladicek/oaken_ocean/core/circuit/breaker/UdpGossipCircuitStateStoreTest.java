@@ -0,0 +1,128 @@
+package com.github.ladicek.oaken_ocean.core.circuit.breaker;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.ladicek.oaken_ocean.core.util.Await.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UdpGossipCircuitStateStoreTest {
+    private static final SetOfThrowables testException = SetOfThrowables.create(Collections.singletonList(TestException.class));
+
+    private final List<UdpGossipCircuitStateStore> nodes = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (UdpGossipCircuitStateStore node : nodes) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void circuitBreakersConverge() throws Exception {
+        UdpGossipCircuitStateStore node1 = node(2);
+        UdpGossipCircuitStateStore node2 = node(2);
+        UdpGossipCircuitStateStore node3 = node(2);
+        connect(node1, node2);
+        connect(node1, node3);
+        connect(node2, node3);
+
+        TestStopwatch stopwatch1 = new TestStopwatch();
+        CircuitBreaker<String> cb1 = circuitBreaker(node1, stopwatch1,
+                TestException::doThrow, TestException::doThrow, () -> "foobar1");
+        CircuitBreaker<String> cb2 = circuitBreaker(node2, new TestStopwatch(), () -> "foobar2");
+        CircuitBreaker<String> cb3 = circuitBreaker(node3, new TestStopwatch(), () -> "foobar3");
+
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        assertThatThrownBy(cb1::call).isExactlyInstanceOf(TestException.class);
+        await("second circuit breaker open", () -> cb2.currentState() == CircuitBreakerState.OPEN);
+        await("third circuit breaker open", () -> cb3.currentState() == CircuitBreakerState.OPEN);
+        assertThatThrownBy(cb2::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+        assertThatThrownBy(cb3::call).isExactlyInstanceOf(CircuitBreakerOpenException.class);
+
+        stopwatch1.setCurrentValue(10_000);
+        assertThat(cb1.call()).isEqualTo("foobar1");
+        assertThat(cb1.currentState()).isEqualTo(CircuitBreakerState.CLOSED);
+        await("second circuit breaker closed", () -> cb2.currentState() == CircuitBreakerState.CLOSED);
+        await("third circuit breaker closed", () -> cb3.currentState() == CircuitBreakerState.CLOSED);
+        assertThat(cb2.call()).isEqualTo("foobar2");
+        assertThat(cb3.call()).isEqualTo("foobar3");
+    }
+
+    @Test
+    public void gossipIsForwarded() throws Exception {
+        // node1 <-> node2 <-> node3, node1 and node3 don't know about each other
+        UdpGossipCircuitStateStore node1 = node(1);
+        UdpGossipCircuitStateStore node2 = node(1);
+        UdpGossipCircuitStateStore node3 = node(1);
+        connect(node1, node2);
+        connect(node2, node3);
+
+        List<CircuitStateEvent> events1 = new CopyOnWriteArrayList<>();
+        List<CircuitStateEvent> events3 = new CopyOnWriteArrayList<>();
+        node1.subscribe("foo", events1::add);
+        node3.subscribe("foo", events3::add);
+
+        node1.publish(new CircuitStateEvent("foo", CircuitBreakerState.OPEN, 1000, 5000, 0.5));
+        await("event forwarded", () -> events3.size() == 1);
+        CircuitStateEvent event = events3.get(0);
+        assertThat(event.name()).isEqualTo("foo");
+        assertThat(event.state()).isEqualTo(CircuitBreakerState.OPEN);
+        assertThat(event.sinceMillis()).isEqualTo(1000);
+        assertThat(event.durationInMillis()).isEqualTo(5000);
+        assertThat(event.failureRatio()).isEqualTo(0.5);
+
+        // older events are not delivered, newer events are
+        node3.publish(new CircuitStateEvent("foo", CircuitBreakerState.CLOSED, 500, 0, Double.NaN));
+        node3.publish(new CircuitStateEvent("foo", CircuitBreakerState.CLOSED, 2000, 0, Double.NaN));
+        await("newer event forwarded back", () -> events1.size() == 1);
+        assertThat(events1.get(0).sinceMillis()).isEqualTo(2000);
+        assertThat(events3).hasSize(1);
+    }
+
+    @Test
+    public void invalidConfiguration() throws IOException {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        assertThatThrownBy(() -> new UdpGossipCircuitStateStore(null, 1))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new UdpGossipCircuitStateStore(loopback, 0))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+
+        UdpGossipCircuitStateStore node = node(1);
+        String tooLong = String.join("", Collections.nCopies(UdpGossipCircuitStateStore.MAX_NAME_LENGTH + 1, "x"));
+        assertThatThrownBy(() -> node.subscribe(tooLong, event -> {})).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    private UdpGossipCircuitStateStore node(int fanout) throws IOException {
+        UdpGossipCircuitStateStore node = new UdpGossipCircuitStateStore(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), fanout);
+        nodes.add(node);
+        return node;
+    }
+
+    private static void connect(UdpGossipCircuitStateStore node1, UdpGossipCircuitStateStore node2) {
+        node1.addPeer(node2.localAddress());
+        node2.addPeer(node1.localAddress());
+    }
+
+    @SafeVarargs
+    private static CircuitBreaker<String> circuitBreaker(CircuitStateStore store, TestStopwatch stopwatch,
+                                                         Callable<String>... actions) {
+        return new CircuitBreaker<>(TestAction.create(actions), "test action", testException,
+                10_000, 2, 0.5, 1, CircuitBreakerConfig.DEFAULT.withStateStore(store), stopwatch);
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.ladicek.oaken_ocean.core.deadline;
+
+import com.github.ladicek.oaken_ocean.core.circuit.breaker.CircuitBreaker;
+import com.github.ladicek.oaken_ocean.core.fallback.Fallback;
+import com.github.ladicek.oaken_ocean.core.retry.Jitter;
+import com.github.ladicek.oaken_ocean.core.retry.Retry;
+import com.github.ladicek.oaken_ocean.core.retry.ThreadSleepDelay;
+import com.github.ladicek.oaken_ocean.core.stopwatch.SystemStopwatch;
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.timeout.ScheduledExecutorTimeoutWatcher;
+import com.github.ladicek.oaken_ocean.core.timeout.Timeout;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DeadlineTest {
+    private static final SetOfThrowables exception = SetOfThrowables.create(Collections.singletonList(Exception.class));
+
+    private TestStopwatch stopwatch;
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        stopwatch = new TestStopwatch();
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        assertThat(Deadline.current()).isSameAs(Deadline.NONE);
+    }
+
+    @Test
+    public void noDeadline() {
+        assertThat(Deadline.current()).isSameAs(Deadline.NONE);
+        assertThat(Deadline.NONE.remainingInNanos()).isEqualTo(Long.MAX_VALUE);
+        assertThat(Deadline.NONE.remainingInMillis()).isEqualTo(Long.MAX_VALUE);
+        assertThat(Deadline.NONE.isExpired()).isFalse();
+        assertThat(Deadline.NONE.clamp(1000)).isEqualTo(1000);
+    }
+
+    @Test
+    public void soonerDeadlineWins() {
+        Deadline outer = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(100), stopwatch);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(100);
+
+        Deadline inner = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(1000), stopwatch);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(100);
+        Deadline.restore(inner);
+
+        inner = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(50), stopwatch);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(50);
+        Deadline.restore(inner);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(100);
+
+        stopwatch.setCurrentValue(60);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(40);
+        assertThat(Deadline.current().clamp(1000)).isEqualTo(40);
+        assertThat(Deadline.current().clamp(10)).isEqualTo(10);
+
+        stopwatch.setCurrentValue(100);
+        assertThat(Deadline.current().isExpired()).isTrue();
+        assertThat(Deadline.current().clamp(1000)).isEqualTo(0);
+        assertThatThrownBy(() -> Deadline.current().checkNotExpired("test action"))
+                .isExactlyInstanceOf(TimeoutException.class);
+
+        Deadline.restore(outer);
+        assertThat(Deadline.current()).isSameAs(Deadline.NONE);
+    }
+
+    @Test
+    public void expiredDeadline_attemptsSkipped() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Callable<String> action = () -> {
+            invocations.incrementAndGet();
+            return "foobar";
+        };
+
+        Deadline previous = Deadline.enter(0, stopwatch);
+        try {
+            assertThatThrownBy(new Timeout<>(action, "test action", 1000,
+                    new ScheduledExecutorTimeoutWatcher(executor))::call)
+                    .isExactlyInstanceOf(TimeoutException.class);
+            assertThatThrownBy(new CircuitBreaker<>(action, "test action", exception, 1000, 5, 0.5, 1,
+                    stopwatch)::call)
+                    .isExactlyInstanceOf(TimeoutException.class);
+            assertThatThrownBy(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 0,
+                    new ThreadSleepDelay(0, Jitter.ZERO), stopwatch)::call)
+                    .isExactlyInstanceOf(FaultToleranceException.class);
+            assertThat(new Fallback<>(action, "test action", () -> "fallback").call()).isEqualTo("fallback");
+        } finally {
+            Deadline.restore(previous);
+        }
+
+        assertThat(invocations).hasValue(0);
+    }
+
+    @Test
+    public void expiredDeadline_fallbackAppliedRegardlessOfApplyOn() throws Exception {
+        SetOfThrowables testException = SetOfThrowables.create(Collections.singletonList(TestException.class));
+        Deadline previous = Deadline.enter(0, stopwatch);
+        try {
+            assertThat(new Fallback<>(() -> "foobar", "test action", () -> "fallback", testException,
+                    SetOfThrowables.EMPTY).call()).isEqualTo("fallback");
+        } finally {
+            Deadline.restore(previous);
+        }
+    }
+
+    @Test
+    public void minAttemptBudget() {
+        Deadline outer = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(10),
+                stopwatch);
+        stopwatch.setCurrentValue(89);
+        assertThat(Deadline.current().allowsAttempt()).isTrue();
+        stopwatch.setCurrentValue(90);
+        assertThat(Deadline.current().isExpired()).isFalse();
+        assertThat(Deadline.current().allowsAttempt()).isFalse();
+        assertThatThrownBy(() -> Deadline.current().checkNotExpired("test action"))
+                .isExactlyInstanceOf(TimeoutException.class);
+
+        // a later deadline doesn't replace the current one, but raises its minimum
+        stopwatch.setCurrentValue(70);
+        Deadline inner = Deadline.enter(TimeUnit.MILLISECONDS.toNanos(1000), TimeUnit.MILLISECONDS.toNanos(50),
+                stopwatch);
+        assertThat(Deadline.current().remainingInMillis()).isEqualTo(30);
+        assertThat(Deadline.current().allowsAttempt()).isFalse();
+        Deadline.restore(inner);
+        assertThat(Deadline.current().allowsAttempt()).isTrue();
+
+        Deadline.restore(outer);
+        assertThat(Deadline.NONE.allowsAttempt()).isTrue();
+    }
+
+    @Test
+    public void minAttemptBudget_retryDoesntStartAttemptThatCantFinish() {
+        AtomicInteger invocations = new AtomicInteger();
+        Callable<String> action = () -> {
+            invocations.incrementAndGet();
+            stopwatch.setCurrentValue(95);
+            throw new TestException();
+        };
+        Callable<String> retry = new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 0,
+                new ThreadSleepDelay(0, Jitter.ZERO), stopwatch);
+        Callable<String> timeout = new Timeout<>(retry, "test action", 100, 10,
+                new ScheduledExecutorTimeoutWatcher(executor), stopwatch);
+
+        assertThatThrownBy(timeout::call).isExactlyInstanceOf(FaultToleranceException.class);
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void timeoutClampsRetrySleep() {
+        Callable<String> retry = new Retry<>(TestException::doThrow, "test action", exception,
+                SetOfThrowables.EMPTY, 3, 0, new ThreadSleepDelay(10_000, Jitter.ZERO), new SystemStopwatch());
+        Callable<String> timeout = new Timeout<>(retry, "test action", 100,
+                new ScheduledExecutorTimeoutWatcher(executor));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(timeout::call).isInstanceOf(FaultToleranceException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+    }
+
+    @Test
+    public void retryDurationClampsNestedTimeout() throws Exception {
+        AtomicLong remainingInNestedAction = new AtomicLong();
+        Callable<String> action = () -> {
+            remainingInNestedAction.set(Deadline.current().remainingInMillis());
+            return "foobar";
+        };
+        Callable<String> timeout = new Timeout<>(action, "test action", 10_000,
+                new ScheduledExecutorTimeoutWatcher(executor), stopwatch);
+        Callable<String> retry = new Retry<>(timeout, "test action", exception, SetOfThrowables.EMPTY, 3, 500,
+                new ThreadSleepDelay(0, Jitter.ZERO), stopwatch);
+
+        assertThat(retry.call()).isEqualTo("foobar");
+        assertThat(remainingInNestedAction.get()).isEqualTo(500);
+    }
+}
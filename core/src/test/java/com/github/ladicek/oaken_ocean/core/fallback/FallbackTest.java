@@ -1,10 +1,12 @@
 package com.github.ladicek.oaken_ocean.core.fallback;
 
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
 import com.github.ladicek.oaken_ocean.core.util.TestException;
 import com.github.ladicek.oaken_ocean.core.util.TestThread;
 import com.github.ladicek.oaken_ocean.core.util.barrier.Barrier;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.concurrent.Callable;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,6 +41,23 @@ public class FallbackTest {
         assertThatThrownBy(result::await).isExactlyInstanceOf(RuntimeException.class);
     }
 
+    @Test
+    public void immediatelyReturning_exceptionNotInApplyOn() {
+        TestAction<String> action = TestAction.immediatelyReturning(TestException::doThrow);
+        TestThread<String> result = TestThread.runOnTestThread(new Fallback<>(action, "test action", () -> "fallback",
+                SetOfThrowables.create(Collections.singletonList(RuntimeException.class)), SetOfThrowables.EMPTY));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(TestException.class);
+    }
+
+    @Test
+    public void immediatelyReturning_exceptionInSkipOn() {
+        TestAction<String> action = TestAction.immediatelyReturning(TestException::doThrow);
+        TestThread<String> result = TestThread.runOnTestThread(new Fallback<>(action, "test action", () -> "fallback",
+                SetOfThrowables.create(Collections.singletonList(Exception.class)),
+                SetOfThrowables.create(Collections.singletonList(TestException.class))));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(TestException.class);
+    }
+
     @Test
     public void waitingOnBarrier_interruptedInAction() throws InterruptedException {
         Barrier startBarrier = Barrier.interruptible();
@@ -0,0 +1,236 @@
+package com.github.ladicek.oaken_ocean.core.hedge;
+
+import com.github.ladicek.oaken_ocean.core.retry.RetryBudget;
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import com.github.ladicek.oaken_ocean.core.util.TestThread;
+import com.github.ladicek.oaken_ocean.core.util.barrier.Barrier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.ladicek.oaken_ocean.core.util.TestThread.runOnTestThread;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HedgeTest {
+    private ExecutorService executor;
+    private TestStopwatch stopwatch;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        stopwatch = new TestStopwatch();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void fastAttempt_notHedged() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Callable<String> action = () -> {
+            invocations.incrementAndGet();
+            return "foobar";
+        };
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(1000), RetryBudget.UNLIMITED,
+                executor, stopwatch);
+        assertThat(hedge.call()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void slowAttempt_hedgeWinsAndFirstIsCancelled() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Barrier neverOpened = Barrier.interruptible();
+        CountDownLatch firstInterrupted = new CountDownLatch(1);
+        Callable<String> action = () -> {
+            if (invocations.incrementAndGet() == 1) {
+                try {
+                    neverOpened.await();
+                } catch (InterruptedException e) {
+                    firstInterrupted.countDown();
+                    throw e;
+                }
+                return "first";
+            }
+            return "second";
+        };
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), RetryBudget.UNLIMITED,
+                executor, stopwatch);
+        assertThat(hedge.call()).isEqualTo("second");
+        assertThat(invocations).hasValue(2);
+        assertThat(firstInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void slowAttempt_firstWinsAfterHedgeStarted() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Barrier firstBarrier = Barrier.interruptible();
+        Barrier neverOpened = Barrier.interruptible();
+        Callable<String> action = () -> {
+            if (invocations.incrementAndGet() == 1) {
+                firstBarrier.await();
+                return "first";
+            }
+            firstBarrier.open();
+            neverOpened.await();
+            return "second";
+        };
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), RetryBudget.UNLIMITED,
+                executor, stopwatch);
+        assertThat(hedge.call()).isEqualTo("first");
+        assertThat(invocations).hasValue(2);
+    }
+
+    @Test
+    public void failedAttempt_otherAttemptWins() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Barrier firstBarrier = Barrier.interruptible();
+        Callable<String> action = () -> {
+            if (invocations.incrementAndGet() == 1) {
+                firstBarrier.await();
+                throw new TestException();
+            }
+            firstBarrier.open();
+            Thread.sleep(50);
+            return "second";
+        };
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), RetryBudget.UNLIMITED,
+                executor, stopwatch);
+        assertThat(hedge.call()).isEqualTo("second");
+    }
+
+    @Test
+    public void bothAttemptsFail() {
+        AtomicInteger invocations = new AtomicInteger();
+        Callable<String> action = () -> {
+            invocations.incrementAndGet();
+            Thread.sleep(50);
+            throw new TestException();
+        };
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), RetryBudget.UNLIMITED,
+                executor, stopwatch);
+        assertThatThrownBy(hedge::call).isExactlyInstanceOf(TestException.class);
+        assertThat(invocations).hasValue(2);
+    }
+
+    @Test
+    public void exhaustedBudget_notHedged() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Callable<String> action = () -> {
+            invocations.incrementAndGet();
+            Thread.sleep(50);
+            return "foobar";
+        };
+        RetryBudget budget = new RetryBudget(0.0, 0, 1, stopwatch);
+        Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), budget, executor, stopwatch);
+
+        assertThat(hedge.call()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(2);
+
+        invocations.set(0);
+        assertThat(hedge.call()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void rejectedHedge_firstAttemptWinsAndBudgetIsReturned() throws Exception {
+        // the only thread runs the first attempt, so the hedged attempt is rejected
+        ExecutorService singleThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        try {
+            AtomicInteger invocations = new AtomicInteger();
+            Callable<String> action = () -> {
+                invocations.incrementAndGet();
+                Thread.sleep(50);
+                return "foobar";
+            };
+            RetryBudget budget = new RetryBudget(0.0, 0, 1, stopwatch);
+            Hedge<String> hedge = new Hedge<>(action, "test action", HedgeDelay.fixed(10), budget, singleThread,
+                    stopwatch);
+
+            assertThat(hedge.call()).isEqualTo("foobar");
+            assertThat(invocations).hasValue(1);
+            assertThat(budget.tryAcquireRetry()).isTrue();
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slowAttempt_latencyRecordedEvenIfHedgeWins() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Barrier neverOpened = Barrier.interruptible();
+        Callable<String> action = () -> {
+            if (invocations.incrementAndGet() == 1) {
+                neverOpened.await();
+                return "first";
+            }
+            return "second";
+        };
+        List<Long> latencies = new CopyOnWriteArrayList<>();
+        HedgeDelay hedgeDelay = new HedgeDelay() {
+            @Override
+            public long delayInMillis() {
+                return 10;
+            }
+
+            @Override
+            public void recordLatency(long latencyInMillis) {
+                latencies.add(latencyInMillis);
+            }
+        };
+        stopwatch.setCurrentValue(500);
+        Hedge<String> hedge = new Hedge<>(action, "test action", hedgeDelay, RetryBudget.UNLIMITED, executor,
+                stopwatch);
+        assertThat(hedge.call()).isEqualTo("second");
+        assertThat(latencies).containsExactly(500L);
+    }
+
+    @Test
+    public void interruptedWhileWaiting() throws InterruptedException {
+        CountDownLatch attemptsStarted = new CountDownLatch(2);
+        Barrier neverOpened = Barrier.interruptible();
+        CountDownLatch attemptsInterrupted = new CountDownLatch(2);
+        Callable<String> action = () -> {
+            try {
+                attemptsStarted.countDown();
+                neverOpened.await();
+            } catch (InterruptedException e) {
+                attemptsInterrupted.countDown();
+                throw e;
+            }
+            return "foobar";
+        };
+        TestThread<String> executingThread = runOnTestThread(new Hedge<>(action, "test action", HedgeDelay.fixed(0),
+                RetryBudget.UNLIMITED, executor, stopwatch));
+        assertThat(attemptsStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        executingThread.interrupt();
+        assertThatThrownBy(executingThread::await).isInstanceOf(InterruptedException.class);
+        assertThat(attemptsInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> HedgeDelay.fixed(-1)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HedgeDelay.percentile(0.0, 10)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HedgeDelay.percentile(1.1, 10)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HedgeDelay.percentile(0.99, -1)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Hedge<>(() -> "foobar", "test action", null, RetryBudget.UNLIMITED, executor, stopwatch))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
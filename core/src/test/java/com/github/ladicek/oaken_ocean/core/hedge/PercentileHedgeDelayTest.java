@@ -0,0 +1,63 @@
+package com.github.ladicek.oaken_ocean.core.hedge;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PercentileHedgeDelayTest {
+    @Test
+    public void bucketBounds() {
+        for (long latency = 0; latency < 100_000; latency++) {
+            int bucket = PercentileHedgeDelay.bucket(latency);
+            assertThat(PercentileHedgeDelay.upperBound(bucket)).isGreaterThanOrEqualTo(latency);
+            assertThat(PercentileHedgeDelay.upperBound(bucket)).isLessThanOrEqualTo(latency + latency / 4);
+            if (bucket > 0) {
+                assertThat(PercentileHedgeDelay.upperBound(bucket - 1)).isLessThan(latency);
+            }
+        }
+
+        assertThat(PercentileHedgeDelay.upperBound(PercentileHedgeDelay.bucket(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void initialDelayUntilEnoughLatencies() {
+        HedgeDelay delay = HedgeDelay.percentile(0.9, 42);
+        for (int i = 0; i < PercentileHedgeDelay.RECOMPUTE_INTERVAL - 1; i++) {
+            delay.recordLatency(1);
+        }
+        assertThat(delay.delayInMillis()).isEqualTo(42);
+
+        delay.recordLatency(1);
+        assertThat(delay.delayInMillis()).isEqualTo(1);
+    }
+
+    @Test
+    public void quantileOfRecordedLatencies() {
+        HedgeDelay delay = HedgeDelay.percentile(0.9, 0);
+        for (int i = 0; i < PercentileHedgeDelay.RECOMPUTE_INTERVAL; i++) {
+            delay.recordLatency(i % 10 == 0 ? 1000 : 100);
+        }
+        // 90 % of latencies are 100, 10 % are 1000
+        assertThat(delay.delayInMillis()).isBetween(100L, 125L);
+
+        HedgeDelay p99 = HedgeDelay.percentile(0.99, 0);
+        for (int i = 0; i < PercentileHedgeDelay.RECOMPUTE_INTERVAL; i++) {
+            p99.recordLatency(i % 10 == 0 ? 1000 : 100);
+        }
+        assertThat(p99.delayInMillis()).isBetween(1000L, 1250L);
+    }
+
+    @Test
+    public void olderLatenciesLoseWeight() {
+        HedgeDelay delay = HedgeDelay.percentile(0.5, 0);
+        for (int i = 0; i < PercentileHedgeDelay.RECOMPUTE_INTERVAL; i++) {
+            delay.recordLatency(1000);
+        }
+        assertThat(delay.delayInMillis()).isBetween(1000L, 1250L);
+
+        for (int i = 0; i < 2 * PercentileHedgeDelay.RECOMPUTE_INTERVAL; i++) {
+            delay.recordLatency(10);
+        }
+        assertThat(delay.delayInMillis()).isBetween(10L, 12L);
+    }
+}
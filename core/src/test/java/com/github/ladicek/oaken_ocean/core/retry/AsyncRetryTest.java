@@ -0,0 +1,198 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import com.github.ladicek.oaken_ocean.core.util.SetOfThrowables;
+import com.github.ladicek.oaken_ocean.core.util.TestException;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncRetryTest {
+    private static final SetOfThrowables exception = SetOfThrowables.withoutCustomThrowables(Collections.singletonList(Exception.class));
+    private static final SetOfThrowables testException = SetOfThrowables.withoutCustomThrowables(Collections.singletonList(TestException.class));
+
+    private static final SchedulableDelay.Factory noDelay = SchedulableDelay.Factory.constant(NoDelay.INSTANCE);
+
+    private ScheduledExecutorService executor;
+    private TestStopwatch stopwatch;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        stopwatch = new TestStopwatch();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void immediatelyReturning_value() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            invocations.incrementAndGet();
+            return CompletableFuture.completedFuture("foobar");
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThat(result.toCompletableFuture().get()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void initiallyFailing_retriedExceptionThenValue() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> invocations.incrementAndGet() <= 2
+                ? failed(new TestException())
+                : CompletableFuture.completedFuture("foobar");
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThat(result.toCompletableFuture().get()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(3);
+    }
+
+    @Test
+    public void synchronouslyThrowing_retriedException() {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            invocations.incrementAndGet();
+            throw new IllegalStateException();
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThatThrownBy(result.toCompletableFuture()::get)
+                .isExactlyInstanceOf(ExecutionException.class)
+                .hasCauseExactlyInstanceOf(FaultToleranceException.class)
+                .hasMessageContaining("test action reached max retries or max retry duration");
+        assertThat(invocations).hasValue(4);
+    }
+
+    @Test
+    public void abortingException() {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            invocations.incrementAndGet();
+            return failed(new TestException());
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, testException,
+                3, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThatThrownBy(result.toCompletableFuture()::get)
+                .isExactlyInstanceOf(ExecutionException.class)
+                .hasCauseExactlyInstanceOf(TestException.class);
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void unknownException() {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            invocations.incrementAndGet();
+            return failed(new TestException());
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", SetOfThrowables.EMPTY,
+                SetOfThrowables.EMPTY, 3, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThatThrownBy(result.toCompletableFuture()::get)
+                .isExactlyInstanceOf(ExecutionException.class)
+                .hasCauseExactlyInstanceOf(TestException.class);
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void maxTotalDurationReached() {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            if (invocations.incrementAndGet() == 2) {
+                stopwatch.setCurrentValue(1000);
+            }
+            return failed(new TestException());
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                10, 1000, noDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        assertThatThrownBy(result.toCompletableFuture()::get)
+                .isExactlyInstanceOf(ExecutionException.class)
+                .hasCauseExactlyInstanceOf(FaultToleranceException.class);
+        assertThat(invocations).hasValue(2);
+    }
+
+    @Test
+    public void waitingDoesNotBlockCaller() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> invocations.incrementAndGet() == 1
+                ? failed(new TestException())
+                : CompletableFuture.completedFuture("foobar");
+        SchedulableDelay.Factory longDelay = SchedulableDelay.Factory.constant(new ThreadSleepDelay(500, Jitter.ZERO));
+
+        long start = System.nanoTime();
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 0, longDelay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        long returnedAfterMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(returnedAfterMillis).isLessThan(250);
+        assertThat(result.toCompletableFuture().isDone()).isFalse();
+        assertThat(result.toCompletableFuture().get()).isEqualTo("foobar");
+        assertThat(invocations).hasValue(2);
+    }
+
+    @Test
+    public void cancelledResultStopsRetrying() throws Exception {
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            invocations.incrementAndGet();
+            return failed(new TestException());
+        };
+        SchedulableDelay.Factory delay = SchedulableDelay.Factory.constant(new ThreadSleepDelay(100, Jitter.ZERO));
+
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 0, delay, RetryBudget.UNLIMITED, executor, stopwatch).get();
+        result.toCompletableFuture().cancel(false);
+
+        Thread.sleep(300);
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    public void delayBeyondMaxTotalDuration_failsFast() throws Exception {
+        RetryBudget budget = new RetryBudget(0.0, 0, 1, stopwatch);
+        AtomicInteger invocations = new AtomicInteger();
+        Supplier<CompletionStage<String>> action = () -> {
+            stopwatch.setCurrentValue(900);
+            return invocations.incrementAndGet() == 1 ? failed(new TestException())
+                    : CompletableFuture.completedFuture("foobar");
+        };
+        CompletionStage<String> result = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 1000, SchedulableDelay.Factory.constant(new ThreadSleepDelay(1_000_000, Jitter.ZERO)), budget, executor,
+                stopwatch).get();
+        assertThatThrownBy(() -> result.toCompletableFuture().get(10, TimeUnit.SECONDS))
+                .isExactlyInstanceOf(ExecutionException.class)
+                .hasCauseExactlyInstanceOf(FaultToleranceException.class);
+        assertThat(invocations).hasValue(1);
+
+        // the budget wasn't spent
+        stopwatch.setCurrentValue(0);
+        CompletionStage<String> retried = new AsyncRetry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 0, noDelay, budget, executor, stopwatch).get();
+        assertThat(retried.toCompletableFuture().get(10, TimeUnit.SECONDS)).isEqualTo("foobar");
+    }
+
+    private static <V> CompletionStage<V> failed(Throwable e) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
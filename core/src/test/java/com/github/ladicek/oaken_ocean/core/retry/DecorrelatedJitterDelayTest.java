@@ -0,0 +1,46 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DecorrelatedJitterDelayTest {
+    @Test
+    public void delayIsBetweenBaseAndThreeTimesPrevious() {
+        for (int i = 0; i < 1_000; i++) {
+            BackoffDelay delay = (BackoffDelay) Delay.Factory.decorrelatedJitter(100, 5_000).create();
+
+            long previous = 100;
+            for (int j = 0; j < 10; j++) {
+                long value = delay.nextDelayInMillis();
+                assertThat(value).isBetween(100L, Math.min(5_000L, previous * 3));
+                previous = value;
+            }
+        }
+    }
+
+    @Test
+    public void baseEqualToMax() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.decorrelatedJitter(100, 100).create();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(delay.nextDelayInMillis()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    public void hugeValuesDoNotOverflow() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.decorrelatedJitter(Long.MAX_VALUE / 2, Long.MAX_VALUE).create();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(delay.nextDelayInMillis()).isGreaterThanOrEqualTo(Long.MAX_VALUE / 2);
+        }
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> Delay.Factory.decorrelatedJitter(0, 500)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Delay.Factory.decorrelatedJitter(100, 50)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExponentialBackoffDelayTest {
+    @Test
+    public void delayGrowsUpToMax() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.exponential(100, 2.0, 500, Jitter.ZERO).create();
+
+        assertThat(delay.nextDelayInMillis()).isEqualTo(100);
+        assertThat(delay.nextDelayInMillis()).isEqualTo(200);
+        assertThat(delay.nextDelayInMillis()).isEqualTo(400);
+        assertThat(delay.nextDelayInMillis()).isEqualTo(500);
+        assertThat(delay.nextDelayInMillis()).isEqualTo(500);
+    }
+
+    @Test
+    public void jitterIsAdded() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.exponential(100, 2.0, 500, new FixedJitter(10)).create();
+
+        assertThat(delay.nextDelayInMillis()).isEqualTo(110);
+        assertThat(delay.nextDelayInMillis()).isEqualTo(210);
+    }
+
+    @Test
+    public void eachInvocationStartsFromInitialDelay() {
+        Delay.Factory factory = Delay.Factory.exponential(100, 2.0, 500, Jitter.ZERO);
+
+        BackoffDelay delay1 = (BackoffDelay) factory.create();
+        delay1.nextDelayInMillis();
+        delay1.nextDelayInMillis();
+
+        BackoffDelay delay2 = (BackoffDelay) factory.create();
+        assertThat(delay2.nextDelayInMillis()).isEqualTo(100);
+    }
+
+    @Test
+    public void hugeValuesDoNotOverflow() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.exponential(Long.MAX_VALUE / 2, 10.0, Long.MAX_VALUE,
+                new FixedJitter(Long.MAX_VALUE)).create();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(delay.nextDelayInMillis()).isEqualTo(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> Delay.Factory.exponential(-1, 2.0, 500, Jitter.ZERO))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Delay.Factory.exponential(100, 0.5, 500, Jitter.ZERO))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Delay.Factory.exponential(100, 2.0, 50, Jitter.ZERO))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Delay.Factory.exponential(100, 2.0, 500, null))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
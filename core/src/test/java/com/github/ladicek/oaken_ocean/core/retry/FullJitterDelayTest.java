@@ -0,0 +1,51 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FullJitterDelayTest {
+    @Test
+    public void delayIsBetweenZeroAndExponentialCeiling() {
+        for (int i = 0; i < 1_000; i++) {
+            BackoffDelay delay = (BackoffDelay) Delay.Factory.fullJitter(100, 500).create();
+
+            assertThat(delay.nextDelayInMillis()).isBetween(0L, 100L);
+            assertThat(delay.nextDelayInMillis()).isBetween(0L, 200L);
+            assertThat(delay.nextDelayInMillis()).isBetween(0L, 400L);
+            assertThat(delay.nextDelayInMillis()).isBetween(0L, 500L);
+            assertThat(delay.nextDelayInMillis()).isBetween(0L, 500L);
+        }
+    }
+
+    @Test
+    public void delaysAreSpread() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.fullJitter(1000, 1000).create();
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            long value = delay.nextDelayInMillis();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        assertThat(min).isLessThan(250);
+        assertThat(max).isGreaterThan(750);
+    }
+
+    @Test
+    public void hugeValuesDoNotOverflow() {
+        BackoffDelay delay = (BackoffDelay) Delay.Factory.fullJitter(Long.MAX_VALUE / 2, Long.MAX_VALUE).create();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(delay.nextDelayInMillis()).isGreaterThanOrEqualTo(0);
+        }
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> Delay.Factory.fullJitter(0, 500)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Delay.Factory.fullJitter(100, 50)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
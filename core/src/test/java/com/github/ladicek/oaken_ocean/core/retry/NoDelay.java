@@ -1,9 +1,14 @@
 package com.github.ladicek.oaken_ocean.core.retry;
 
-public enum NoDelay implements Delay { // enum-singleton
+public enum NoDelay implements SchedulableDelay { // enum-singleton
     INSTANCE;
 
     @Override
     public void sleep() {
     }
+
+    @Override
+    public long nextDelayInMillis() {
+        return 0;
+    }
 }
@@ -0,0 +1,124 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import com.github.ladicek.oaken_ocean.core.util.TestThread;
+import org.assertj.core.data.Percentage;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ladicek.oaken_ocean.core.util.TestThread.runOnTestThread;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+public class ParkNanosDelayTest {
+    private static final Percentage tolerance = withPercentage(10);
+
+    @Test
+    public void subMillisecondDelay() throws InterruptedException {
+        Delay delay = new ParkNanosDelay(TimeUnit.MICROSECONDS.toNanos(200), Jitter.ZERO);
+
+        long start = System.nanoTime();
+        delay.sleep();
+        long timeInNanos = System.nanoTime() - start;
+
+        assertThat(timeInNanos).isGreaterThanOrEqualTo(TimeUnit.MICROSECONDS.toNanos(200))
+                .isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void cappedDelay() throws InterruptedException {
+        Delay delay = new ParkNanosDelay(TimeUnit.SECONDS.toNanos(10), Jitter.ZERO);
+
+        long start = System.nanoTime();
+        delay.sleep(TimeUnit.MICROSECONDS.toNanos(200));
+        long timeInNanos = System.nanoTime() - start;
+
+        assertThat(timeInNanos).isGreaterThanOrEqualTo(TimeUnit.MICROSECONDS.toNanos(200))
+                .isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void positiveDelay_fixedJitter() throws InterruptedException {
+        Delay delay = new ParkNanosDelay(TimeUnit.MILLISECONDS.toNanos(100), new FixedJitter(TimeUnit.MILLISECONDS.toNanos(50)));
+
+        long start = System.nanoTime();
+        delay.sleep();
+        long timeInMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(timeInMillis).isCloseTo(150, tolerance);
+    }
+
+    @Test
+    public void positiveDelay_randomJitter() throws InterruptedException {
+        Delay delay = new ParkNanosDelay(TimeUnit.MILLISECONDS.toNanos(100), new RandomJitter(TimeUnit.MILLISECONDS.toNanos(50)));
+
+        long start = System.nanoTime();
+        delay.sleep();
+        long timeInMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(timeInMillis).isGreaterThanOrEqualTo(50).isLessThanOrEqualTo(150 + /* tolerance */ 10);
+    }
+
+    @Test
+    public void zeroDelay_interruptionNotObserved() throws InterruptedException {
+        Delay delay = new ParkNanosDelay(0, Jitter.ZERO);
+
+        Thread.currentThread().interrupt();
+        try {
+            delay.sleep(); // doesn't wait, so doesn't observe the interruption
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void interruptedBeforeWaiting() {
+        Delay delay = new ParkNanosDelay(TimeUnit.SECONDS.toNanos(10), Jitter.ZERO);
+
+        Thread.currentThread().interrupt();
+        assertThatThrownBy(delay::sleep).isExactlyInstanceOf(InterruptedException.class);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void interruptedWhileWaiting() throws Exception {
+        Delay delay = new ParkNanosDelay(TimeUnit.SECONDS.toNanos(10), Jitter.ZERO);
+
+        long start = System.nanoTime();
+        TestThread<Boolean> thread = runOnTestThread(() -> {
+            try {
+                delay.sleep();
+                return false;
+            } catch (InterruptedException e) {
+                return !Thread.currentThread().isInterrupted();
+            }
+        });
+        Thread.sleep(50);
+        thread.interrupt();
+
+        assertThat(thread.await()).isTrue();
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(5_000);
+    }
+
+    @Test
+    public void nextDelayInMillis_roundedUp() {
+        assertThat(new ParkNanosDelay(0, Jitter.ZERO).nextDelayInMillis()).isEqualTo(0);
+        assertThat(new ParkNanosDelay(1, Jitter.ZERO).nextDelayInMillis()).isEqualTo(1);
+        assertThat(new ParkNanosDelay(1_000_000, Jitter.ZERO).nextDelayInMillis()).isEqualTo(1);
+        assertThat(new ParkNanosDelay(1_000_001, Jitter.ZERO).nextDelayInMillis()).isEqualTo(2);
+        assertThat(new ParkNanosDelay(Long.MAX_VALUE, new FixedJitter(Long.MAX_VALUE)).nextDelayInMillis())
+                .isEqualTo(TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE) + 1);
+    }
+
+    @Test
+    public void negativeDelay() {
+        assertThatThrownBy(() -> new ParkNanosDelay(-1, Jitter.ZERO)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void nullJitter() {
+        assertThatThrownBy(() -> new ParkNanosDelay(1, null)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.ladicek.oaken_ocean.core.retry;
+
+import com.github.ladicek.oaken_ocean.core.stopwatch.TestStopwatch;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryBudgetTest {
+    private TestStopwatch stopwatch;
+
+    @Before
+    public void setUp() {
+        stopwatch = new TestStopwatch();
+    }
+
+    @Test
+    public void unlimited() {
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(RetryBudget.UNLIMITED.tryAcquireRetry()).isTrue();
+        }
+    }
+
+    @Test
+    public void startsFull() {
+        RetryBudget budget = new RetryBudget(0.0, 0, 3, stopwatch);
+
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void refilledByRequests() {
+        RetryBudget budget = new RetryBudget(0.1, 0, 1, stopwatch);
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+
+        for (int i = 0; i < 9; i++) {
+            budget.recordRequest();
+        }
+        assertThat(budget.tryAcquireRetry()).isFalse();
+
+        budget.recordRequest();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void refilledByTime() {
+        RetryBudget budget = new RetryBudget(0.0, 2, 10, stopwatch);
+        while (budget.tryAcquireRetry()) {
+            // drain
+        }
+
+        stopwatch.setCurrentValue(499);
+        assertThat(budget.tryAcquireRetry()).isFalse();
+
+        stopwatch.setCurrentValue(500);
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void capacityIsNeverExceeded() {
+        RetryBudget budget = new RetryBudget(1.0, 1_000, 2, stopwatch);
+        for (int i = 0; i < 1_000; i++) {
+            budget.recordRequest();
+        }
+        stopwatch.setCurrentValue(Long.MAX_VALUE);
+
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void releasedRetry() {
+        RetryBudget budget = new RetryBudget(0.0, 0, 1, stopwatch);
+        budget.releaseRetry();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+
+        budget.releaseRetry();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> new RetryBudget(-0.1, 0, 1, stopwatch)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RetryBudget(0.1, -1, 1, stopwatch)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RetryBudget(0.1, 0, 0, stopwatch)).isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RetryBudget(0.1, 0, 1, null)).isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.ladicek.oaken_ocean.core.util.TestThread.runOnTestThread;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -64,6 +65,146 @@ public class RetryTest {
         assertThat(action.numberOfInvocations()).isEqualTo(1);
     }
 
+    @Test
+    public void delayFactory_calledOncePerRetriedInvocation() throws Exception {
+        AtomicInteger createdDelays = new AtomicInteger();
+        Delay.Factory delayFactory = () -> {
+            createdDelays.incrementAndGet();
+            return NoDelay.INSTANCE;
+        };
+
+        TestAction<String> succeeding = TestAction.immediatelyReturning(() -> "foobar");
+        assertThat(new Retry<>(succeeding, "test action", exception, SetOfThrowables.EMPTY, 3, 1000,
+                delayFactory, RetryBudget.UNLIMITED, stopwatch).call()).isEqualTo("foobar");
+        assertThat(createdDelays).hasValue(0);
+
+        TestAction<String> retried = TestAction.initiallyFailing(2, RuntimeException::new, () -> "foobar");
+        assertThat(new Retry<>(retried, "test action", exception, SetOfThrowables.EMPTY, 3, 1000,
+                delayFactory, RetryBudget.UNLIMITED, stopwatch).call()).isEqualTo("foobar");
+        assertThat(createdDelays).hasValue(1);
+    }
+
+    @Test
+    public void retryBudgetExhausted() {
+        RetryBudget budget = new RetryBudget(0.0, 0, 2, stopwatch);
+        TestAction<Void> action = TestAction.immediatelyReturning(TestException::doThrow);
+        TestThread<Void> result = runOnTestThread(new Retry<>(action, "test action",
+                exception, SetOfThrowables.EMPTY, 3, 1000, Delay.Factory.constant(NoDelay.INSTANCE), budget, stopwatch));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(TestException.class);
+        assertThat(action.numberOfInvocations()).isEqualTo(3);
+    }
+
+    @Test
+    public void customDelay_cappedByMaxTotalDuration() {
+        Delay delay = new SchedulableDelay() {
+            @Override
+            public void sleep() {
+                throw new AssertionError("Retry should cap the delay");
+            }
+
+            @Override
+            public long nextDelayInMillis() {
+                return 10_000;
+            }
+        };
+        TestAction<Void> action = TestAction.immediatelyReturning(TestException::doThrow);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 1, 100,
+                delay, stopwatch)::call).isExactlyInstanceOf(FaultToleranceException.class);
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(100).isLessThan(5_000);
+        assertThat(action.numberOfInvocations()).isEqualTo(2);
+    }
+
+    @Test
+    public void retryBudget_notSpentWithoutRetry() throws Exception {
+        RetryBudget budget = new RetryBudget(0.0, 0, 1, stopwatch);
+        AtomicInteger sleeps = new AtomicInteger();
+        Delay.Factory delayFactory = Delay.Factory.constant(sleeps::incrementAndGet);
+
+        TestAction<Void> failing = TestAction.immediatelyReturning(TestException::doThrow);
+        assertThatThrownBy(new Retry<>(failing, "test action", exception, SetOfThrowables.EMPTY, 0, 1000,
+                delayFactory, budget, stopwatch)::call).isExactlyInstanceOf(FaultToleranceException.class);
+        assertThat(sleeps).hasValue(0);
+
+        TestAction<String> retried = TestAction.initiallyFailing(1, RuntimeException::new, () -> "foobar");
+        assertThat(new Retry<>(retried, "test action", exception, SetOfThrowables.EMPTY, 1, 1000,
+                delayFactory, budget, stopwatch).call()).isEqualTo("foobar");
+        assertThat(sleeps).hasValue(1);
+    }
+
+    @Test
+    public void retryAfterHint_usedInsteadOfDelay() throws Exception {
+        AtomicInteger createdDelays = new AtomicInteger();
+        Delay.Factory delayFactory = () -> {
+            createdDelays.incrementAndGet();
+            return NoDelay.INSTANCE;
+        };
+        TestAction<String> action = TestAction.initiallyFailing(1, () -> new RetryAfterException(50), () -> "foobar");
+
+        long start = System.nanoTime();
+        assertThat(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 1000, delayFactory,
+                RetryAfter.AWARE, 1000, RetryBudget.UNLIMITED, stopwatch).call()).isEqualTo("foobar");
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(50);
+        assertThat(action.numberOfInvocations()).isEqualTo(2);
+        assertThat(createdDelays).hasValue(0);
+    }
+
+    @Test
+    public void retryAfterHint_capped() throws Exception {
+        TestAction<String> action = TestAction.initiallyFailing(1, () -> new RetryAfterException(500), () -> "foobar");
+
+        long start = System.nanoTime();
+        assertThat(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 1000,
+                Delay.Factory.constant(NoDelay.INSTANCE), RetryAfter.AWARE, 10, RetryBudget.UNLIMITED, stopwatch)
+                .call()).isEqualTo("foobar");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(250);
+        assertThat(action.numberOfInvocations()).isEqualTo(2);
+    }
+
+    @Test
+    public void retryAfterHint_cappedBeforeComparingToMaxTotalDuration() throws Exception {
+        TestAction<String> action = TestAction.initiallyFailing(1, () -> new RetryAfterException(2000), () -> "foobar");
+        assertThat(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 1000,
+                Delay.Factory.constant(NoDelay.INSTANCE), RetryAfter.AWARE, 10, RetryBudget.UNLIMITED, stopwatch)
+                .call()).isEqualTo("foobar");
+        assertThat(action.numberOfInvocations()).isEqualTo(2);
+    }
+
+    @Test
+    public void retryAfterHint_notCappedWithZeroMax() throws Exception {
+        TestAction<String> action = TestAction.initiallyFailing(1, () -> new RetryAfterException(50), () -> "foobar");
+
+        long start = System.nanoTime();
+        assertThat(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY, 3, 1000,
+                Delay.Factory.constant(NoDelay.INSTANCE), RetryAfter.AWARE, 0, RetryBudget.UNLIMITED, stopwatch)
+                .call()).isEqualTo("foobar");
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    public void retryAfterHint_exceedingMaxTotalDuration() {
+        TestAction<Void> action = TestAction.immediatelyReturning(() -> {
+            throw new RetryAfterException(2000);
+        });
+        TestThread<Void> result = runOnTestThread(new Retry<>(action, "test action", exception, SetOfThrowables.EMPTY,
+                3, 1000, Delay.Factory.constant(NoDelay.INSTANCE), RetryAfter.AWARE, 5000, RetryBudget.UNLIMITED,
+                stopwatch));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(RetryAfterException.class);
+        assertThat(action.numberOfInvocations()).isEqualTo(1);
+    }
+
+    @Test
+    public void retryAfterHint_ignoredWithoutExtractor() {
+        TestAction<Void> action = TestAction.immediatelyReturning(() -> {
+            throw new RetryAfterException(2000);
+        });
+        TestThread<Void> result = runOnTestThread(new Retry<>(action, "test action",
+                exception, SetOfThrowables.EMPTY, 3, 1000, NoDelay.INSTANCE, stopwatch));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(FaultToleranceException.class);
+        assertThat(action.numberOfInvocations()).isEqualTo(4);
+    }
+
     @Test
     public void immediatelyReturning_interruptedInAction() throws InterruptedException {
         Barrier startActionBarrier = Barrier.interruptible();
@@ -598,4 +739,17 @@ public class RetryTest {
         assertThatThrownBy(executingThread::await).isInstanceOf(InterruptedException.class);
         assertThat(action.numberOfInvocations()).isEqualTo(1);
     }
+
+    private static final class RetryAfterException extends Exception implements RetryAfter.Aware {
+        private final long retryAfterInMillis;
+
+        RetryAfterException(long retryAfterInMillis) {
+            this.retryAfterInMillis = retryAfterInMillis;
+        }
+
+        @Override
+        public long retryAfterInMillis() {
+            return retryAfterInMillis;
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.github.ladicek.oaken_ocean.core.stopwatch;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StopwatchTest {
+    @Test
+    public void primitiveMeasurementDerivedFromStart() {
+        AtomicLong millis = new AtomicLong(0);
+        Stopwatch stopwatch = Stopwatch.withNanos(() -> millis::get); // only implements `start()`
+
+        long start = stopwatch.nowInNanos();
+        millis.set(5);
+        assertThat(stopwatch.elapsedInNanos(start)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        long later = stopwatch.nowInNanos();
+        millis.set(7);
+        assertThat(stopwatch.elapsedInNanos(later)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    public void primitiveMeasurementNotWrappedWhenImplemented() {
+        Stopwatch stopwatch = new SystemStopwatch();
+        assertThat(Stopwatch.withNanos(stopwatch)).isSameAs(stopwatch);
+    }
+
+    @Test
+    public void primitiveMeasurementNotSupportedWithoutWrapping() {
+        Stopwatch stopwatch = () -> () -> 0L;
+        assertThatThrownBy(stopwatch::nowInNanos).isExactlyInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -23,4 +23,11 @@ public class SystemStopwatchTest {
         Thread.sleep(100);
         assertThat(runningStopwatch.elapsedTimeInMillis()).isCloseTo(100, tolerance);
     }
+
+    @Test
+    public void primitiveMeasurement() throws InterruptedException {
+        long start = stopwatch.nowInNanos();
+        Thread.sleep(100);
+        assertThat(stopwatch.elapsedInNanos(start) / 1_000_000).isCloseTo(100, tolerance);
+    }
 }
@@ -1,7 +1,10 @@
 package com.github.ladicek.oaken_ocean.core.stopwatch;
 
+import java.util.concurrent.TimeUnit;
+
+// the elapsed time is always the current value, no matter when the measurement started
 public class TestStopwatch implements Stopwatch {
-    private volatile long currentValue;
+    private volatile long currentValue; // in millis
 
     public void setCurrentValue(long currentValue) {
         this.currentValue = currentValue;
@@ -16,4 +19,14 @@ public class TestStopwatch implements Stopwatch {
             }
         };
     }
+
+    @Override
+    public long nowInNanos() {
+        return 0;
+    }
+
+    @Override
+    public long elapsedInNanos(long startInNanos) {
+        return TimeUnit.MILLISECONDS.toNanos(currentValue);
+    }
 }
@@ -0,0 +1,159 @@
+package com.github.ladicek.oaken_ocean.core.timeout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HashedWheelTimeoutWatcherTest {
+    private HashedWheelTimeoutWatcher watcher;
+
+    @Before
+    public void setUp() {
+        watcher = new HashedWheelTimeoutWatcher(5, 8); // one rotation is 40 millis
+    }
+
+    @After
+    public void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    public void timedOut() throws InterruptedException {
+        AtomicBoolean wasInterrupted = new AtomicBoolean(false);
+
+        Thread thread = run(wasInterrupted);
+        watcher.schedule(new TimeoutExecution(thread, 50L));
+        thread.join();
+
+        assertThat(wasInterrupted).isTrue();
+    }
+
+    @Test
+    public void notTimedOut() throws InterruptedException {
+        AtomicBoolean wasInterrupted = new AtomicBoolean(false);
+
+        Thread thread = run(wasInterrupted);
+        watcher.schedule(new TimeoutExecution(thread, 200L));
+        thread.join();
+
+        assertThat(wasInterrupted).isFalse();
+    }
+
+    @Test
+    public void cancelled() throws InterruptedException {
+        AtomicBoolean wasInterrupted = new AtomicBoolean(false);
+
+        Thread thread = run(wasInterrupted);
+        watcher.schedule(new TimeoutExecution(thread, 50L)).cancel();
+        thread.join();
+
+        assertThat(wasInterrupted).isFalse();
+    }
+
+    @Test
+    public void neverEarly() throws InterruptedException {
+        List<TimeoutExecution> executions = new ArrayList<>();
+        List<Long> scheduledAt = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            TimeoutExecution execution = new TimeoutExecution(new Thread(), i); // up to 2.5 rotations
+            scheduledAt.add(System.nanoTime());
+            watcher.schedule(execution);
+            executions.add(execution);
+        }
+
+        while (!executions.isEmpty()) {
+            for (int i = executions.size() - 1; i >= 0; i--) {
+                TimeoutExecution execution = executions.get(i);
+                boolean timedOut = execution.hasTimedOut();
+                long elapsedInMillis = (System.nanoTime() - scheduledAt.get(i)) / 1_000_000;
+                if (timedOut) {
+                    assertThat(elapsedInMillis).isGreaterThanOrEqualTo(execution.timeoutInMillis());
+                    executions.remove(i);
+                    scheduledAt.remove(i);
+                }
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void manyCancelled_fewTimedOut() throws InterruptedException {
+        List<TimeoutExecution> cancelled = new ArrayList<>();
+        List<TimeoutExecution> timedOut = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            TimeoutExecution execution = new TimeoutExecution(new Thread(), 20 + i % 100);
+            TimeoutWatch watch = watcher.schedule(execution);
+            if (i % 100 == 0) {
+                timedOut.add(execution);
+            } else {
+                watch.cancel();
+                cancelled.add(execution);
+            }
+        }
+
+        Thread.sleep(300);
+
+        assertThat(timedOut).allMatch(TimeoutExecution::hasTimedOut);
+        assertThat(cancelled).noneMatch(TimeoutExecution::hasTimedOut);
+    }
+
+    @Test
+    public void failingTimeoutDoesntStopTicker() throws InterruptedException {
+        List<Throwable> reported = new CopyOnWriteArrayList<>();
+        Thread.UncaughtExceptionHandler previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            Thread failing = new Thread() {
+                @Override
+                public void interrupt() {
+                    throw new IllegalStateException("Can't interrupt");
+                }
+            };
+            watcher.schedule(new TimeoutExecution(failing, 10L));
+            AtomicBoolean wasInterrupted = new AtomicBoolean(false);
+            Thread thread = run(wasInterrupted);
+            watcher.schedule(new TimeoutExecution(thread, 50L));
+            thread.join();
+
+            assertThat(wasInterrupted).isTrue();
+            assertThat(reported).hasSize(1).allMatch(e -> e instanceof IllegalStateException);
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previousHandler);
+        }
+    }
+
+    @Test
+    public void closed() {
+        watcher.close();
+        assertThatThrownBy(() -> watcher.schedule(new TimeoutExecution(Thread.currentThread(), 50L)))
+                .isExactlyInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void invalidConfiguration() {
+        assertThatThrownBy(() -> new HashedWheelTimeoutWatcher(0, 8))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashedWheelTimeoutWatcher(5, 0))
+                .isExactlyInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Thread run(AtomicBoolean interruptionFlag) {
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                interruptionFlag.set(true);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Test;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,6 +49,50 @@ public class ScheduledExecutorTimeoutWatcherTest {
         assertThat(wasInterrupted).isFalse();
     }
 
+    @Test
+    public void cancelled() throws InterruptedException {
+        AtomicBoolean wasInterrupted = new AtomicBoolean(false);
+
+        Thread thread = run(wasInterrupted);
+        watcher.schedule(new TimeoutExecution(thread, 50L)).cancel();
+        thread.join();
+
+        assertThat(wasInterrupted).isFalse();
+    }
+
+    @Test
+    public void cancelled_wrappedExecutor() {
+        for (int i = 0; i < 1000; i++) {
+            watcher.schedule(new TimeoutExecution(Thread.currentThread(), 10_000L)).cancel();
+        }
+        assertThat(Thread.interrupted()).isFalse();
+    }
+
+    @Test
+    public void cancelled_removedFromQueueOfOwnedExecutor() {
+        try (ScheduledExecutorTimeoutWatcher watcher = new ScheduledExecutorTimeoutWatcher()) {
+            for (int i = 0; i < 1000; i++) {
+                watcher.schedule(new TimeoutExecution(Thread.currentThread(), 10_000L)).cancel();
+            }
+
+            assertThat(((ScheduledThreadPoolExecutor) watcher.executor()).getQueue()).isEmpty();
+        }
+    }
+
+    @Test
+    public void givenExecutorNotReconfiguredNorShutDown() throws InterruptedException {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            new ScheduledExecutorTimeoutWatcher(executor).close();
+
+            assertThat(executor.getRemoveOnCancelPolicy()).isFalse();
+            assertThat(executor.isShutdown()).isFalse();
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
     private Thread run(AtomicBoolean interruptionFlag) {
         Thread thread = new Thread(() -> {
             try {
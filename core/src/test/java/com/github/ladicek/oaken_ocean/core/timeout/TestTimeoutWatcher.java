@@ -9,6 +9,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public final class TestTimeoutWatcher implements TimeoutWatcher {
     private final AtomicBoolean alreadyUsed = new AtomicBoolean(false);
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
 
     private final Barrier timeoutElapsedBarrier;
     private final Barrier executionInterruptedBarrier;
@@ -19,7 +20,7 @@ public final class TestTimeoutWatcher implements TimeoutWatcher {
     }
 
     @Override
-    public void schedule(TimeoutExecution execution) {
+    public TimeoutWatch schedule(TimeoutExecution execution) {
         if (alreadyUsed.compareAndSet(false, true)) {
             new Thread(() -> {
                 try {
@@ -32,8 +33,13 @@ public final class TestTimeoutWatcher implements TimeoutWatcher {
                     e.printStackTrace();
                 }
             }).start();
+            return () -> cancelled.set(true);
         } else {
             throw new IllegalStateException("TestTimeoutWatcher cannot be reused");
         }
     }
+
+    public boolean wasCancelled() {
+        return cancelled.get();
+    }
 }
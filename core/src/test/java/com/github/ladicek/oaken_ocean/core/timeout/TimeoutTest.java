@@ -46,6 +46,26 @@ public class TimeoutTest {
         assertThatThrownBy(result::await).isExactlyInstanceOf(TestException.class);
     }
 
+    @Test
+    public void immediatelyReturning_watchCancelled() throws Exception {
+        TestTimeoutWatcher watcher = new TestTimeoutWatcher(watcherTimeoutElapsedBarrier,
+                watcherExecutionInterruptedBarrier);
+        TestAction<String> action = TestAction.immediatelyReturning(() -> "foobar");
+        TestThread<String> result = runOnTestThread(new Timeout<>(action, "test action", 1000, watcher));
+        assertThat(result.await()).isEqualTo("foobar");
+        assertThat(watcher.wasCancelled()).isTrue();
+    }
+
+    @Test
+    public void immediatelyReturning_exception_watchCancelled() {
+        TestTimeoutWatcher watcher = new TestTimeoutWatcher(watcherTimeoutElapsedBarrier,
+                watcherExecutionInterruptedBarrier);
+        TestAction<Void> action = TestAction.immediatelyReturning(TestException::doThrow);
+        TestThread<Void> result = runOnTestThread(new Timeout<>(action, "test action", 1000, watcher));
+        assertThatThrownBy(result::await).isExactlyInstanceOf(TestException.class);
+        assertThat(watcher.wasCancelled()).isTrue();
+    }
+
     @Test
     public void delayed_value_notTimedOut() throws Exception {
         Barrier actionDelayBarrier = Barrier.interruptible();
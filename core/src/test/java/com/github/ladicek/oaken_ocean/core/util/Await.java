@@ -0,0 +1,19 @@
+package com.github.ladicek.oaken_ocean.core.util;
+
+import java.util.function.BooleanSupplier;
+
+public final class Await {
+    private static final long TIMEOUT_IN_MILLIS = 5000;
+
+    private Await() {} // avoid instantiation
+
+    public static void await(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_IN_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for: " + description);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
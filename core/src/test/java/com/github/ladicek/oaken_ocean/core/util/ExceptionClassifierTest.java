@@ -0,0 +1,95 @@
+package com.github.ladicek.oaken_ocean.core.util;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExceptionClassifierTest {
+    private static final SetOfThrowables exception = SetOfThrowables.create(Collections.singletonList(Exception.class));
+    private static final SetOfThrowables runtimeException = SetOfThrowables.create(Collections.singletonList(RuntimeException.class));
+
+    @Test
+    public void nothingHandled() {
+        ExceptionClassifier classifier = new ExceptionClassifier(SetOfThrowables.EMPTY, SetOfThrowables.EMPTY);
+
+        assertThat(classifier.handles(new Exception())).isFalse();
+        assertThat(classifier.handles(new RuntimeException())).isFalse();
+        assertThat(classifier.handles(new Error())).isFalse();
+    }
+
+    @Test
+    public void handledOnly() {
+        ExceptionClassifier classifier = new ExceptionClassifier(exception, SetOfThrowables.EMPTY);
+
+        assertThat(classifier.handles(new Exception())).isTrue();
+        assertThat(classifier.handles(new TestException())).isTrue();
+        assertThat(classifier.handles(new IllegalStateException())).isTrue();
+        assertThat(classifier.handles(new Error())).isFalse();
+    }
+
+    @Test
+    public void ignoredTakesPrecedence() {
+        ExceptionClassifier classifier = new ExceptionClassifier(exception, runtimeException);
+
+        assertThat(classifier.handles(new Exception())).isTrue();
+        assertThat(classifier.handles(new TestException())).isTrue();
+        assertThat(classifier.handles(new RuntimeException())).isFalse();
+        assertThat(classifier.handles(new IllegalStateException())).isFalse();
+        assertThat(classifier.handles(new Error())).isFalse();
+    }
+
+    @Test
+    public void ignoredMoreGeneralThanHandled() {
+        ExceptionClassifier classifier = new ExceptionClassifier(runtimeException, exception);
+
+        assertThat(classifier.handles(new RuntimeException())).isFalse();
+        assertThat(classifier.handles(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    public void repeatedClassificationIsConsistent() {
+        ExceptionClassifier classifier = new ExceptionClassifier(exception, runtimeException);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(classifier.handles(new TestException())).isTrue();
+            assertThat(classifier.handles(new IllegalArgumentException())).isFalse();
+        }
+    }
+
+    @Test
+    public void moreTypesThanCached() {
+        ExceptionClassifier classifier = new ExceptionClassifier(exception, runtimeException);
+        List<Throwable> handled = Arrays.asList(new Exception(), new TestException(), new IOException(),
+                new FileNotFoundException(), new EOFException(), new TimeoutException(), new ExecutionException(null),
+                new InterruptedException(), new CloneNotSupportedException(), new ClassNotFoundException(),
+                new ReflectiveOperationException(), new NoSuchMethodException(), new NoSuchFieldException(),
+                new InstantiationException(), new IllegalAccessException(), new GeneralSecurityException(),
+                new URISyntaxException("", ""), new ParseException("", 0));
+        List<Throwable> notHandled = Arrays.asList(new RuntimeException(), new IllegalStateException(),
+                new IllegalArgumentException(), new NumberFormatException(), new UnsupportedOperationException(),
+                new NullPointerException(), new ArithmeticException(), new IndexOutOfBoundsException(),
+                new ClassCastException(), new ArrayStoreException(), new SecurityException(), new Error(),
+                new AssertionError(), new OutOfMemoryError(), new StackOverflowError(), new LinkageError());
+
+        for (int i = 0; i < 3; i++) {
+            for (Throwable throwable : handled) {
+                assertThat(classifier.handles(throwable)).as(throwable.getClass().getName()).isTrue();
+            }
+            for (Throwable throwable : notHandled) {
+                assertThat(classifier.handles(throwable)).as(throwable.getClass().getName()).isFalse();
+            }
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.github.ladicek.oaken_ocean.core.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -107,4 +109,35 @@ public class SetOfThrowablesTest {
         assertThat(set.includes(RuntimeException.class)).isTrue();
         assertThat(set.includes(Error.class)).isTrue();
     }
+
+    @Test
+    public void repeatedLookupsAreConsistent() {
+        SetOfThrowables set = SetOfThrowables.create(Collections.singletonList(RuntimeException.class));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(set.includes(IllegalArgumentException.class)).isTrue();
+            assertThat(set.includes(TestException.class)).isFalse();
+        }
+    }
+
+    @Test
+    public void setsDoNotShareMemoizedResults() {
+        SetOfThrowables runtimeExceptions = SetOfThrowables.create(Collections.singletonList(RuntimeException.class));
+        SetOfThrowables errors = SetOfThrowables.create(Collections.singletonList(Error.class));
+
+        assertThat(runtimeExceptions.includes(IllegalStateException.class)).isTrue();
+        assertThat(errors.includes(IllegalStateException.class)).isFalse();
+        assertThat(errors.includes(AssertionError.class)).isTrue();
+        assertThat(runtimeExceptions.includes(AssertionError.class)).isFalse();
+    }
+
+    @Test
+    public void laterChangesOfTheListAreIgnored() {
+        List<Class<? extends Throwable>> classes = new ArrayList<>();
+        classes.add(RuntimeException.class);
+        SetOfThrowables set = SetOfThrowables.create(classes);
+        classes.add(Error.class);
+
+        assertThat(set.includes(Error.class)).isFalse();
+    }
 }